@@ -6,20 +6,30 @@ import org.example.exceptions.GameException;
 import org.example.exceptions.IllegalMoveException;
 import org.example.exceptions.JsonException;
 import org.example.exceptions.PlayerException;
+import org.example.rpc.RpcHandshake;
 import org.example.rpc.RpcMessage;
 import org.example.rpc.RpcReader;
 import org.example.rpc.RpcWriter;
 import org.example.ui.figure.Color;
 import org.example.utils.LocalIPv4;
 
+import java.io.EOFException;
 import java.io.IOException;
-import java.io.InputStreamReader;
-import java.io.OutputStreamWriter;
 import java.net.ServerSocket;
 import java.net.Socket;
+import java.util.Arrays;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
 
 public class ChessServerClientProxy implements IChessServer {
     private final Socket socket;
@@ -27,82 +37,207 @@ public class ChessServerClientProxy implements IChessServer {
     private final RpcReader reader;
 
     private final Set<PlayerServerProxy> openPlayerProxys = new HashSet<>();
+    //the protocol offer of an older server has already been read during the handshake
+    private boolean offerRead = false;
+    private boolean banner = true;
+
+    //with mux the players are called on channels of this connection, a reader thread hands the answers of the server
+    //to the requests and the calls on the channels to the player proxies
+    private static final RpcMessage CLOSED = new RpcMessage(-1);
+    private boolean mux = false;
+    private final BlockingQueue<RpcMessage> responses = new LinkedBlockingQueue<>();
+    private final Map<IPlayer, PlayerServerProxy> channelPlayers = new ConcurrentHashMap<>();
+    private final Map<Integer, PlayerServerProxy> channels = new ConcurrentHashMap<>();
+    private final AtomicInteger nextChannel = new AtomicInteger();
+    //pipelined requests waiting for their responses by request id
+    private boolean pipeline = false;
+    private volatile boolean closed = false;
+    private final Map<Integer, CompletableFuture<RpcMessage>> pending = new ConcurrentHashMap<>();
+    private final AtomicInteger nextRequestId = new AtomicInteger();
+    //the proxies of the players of this client, dialed back or on channels, are told which game their updates belong to
+    private final Map<IPlayer, PlayerServerProxy> proxies = new ConcurrentHashMap<>();
+    //a lockstep request is one exchange, the players fetch missed updates while the client sends its own requests
+    private final ReentrantLock lock = new ReentrantLock();
 
     private enum Protocol {
-        MOVE_PIECE, GET_BOARD, CREATE_GAME, JOIN_GAME, LEAVE_GAME, END_CONNECTION;
+        MOVE_PIECE, GET_BOARD, CREATE_GAME, JOIN_GAME, LEAVE_GAME, END_CONNECTION, HANDSHAKE, GET_BOARD_SINCE;
     }
 
     public ChessServerClientProxy(Socket socket) throws IOException {
         this.socket = socket;
-        this.reader = new RpcReader(new InputStreamReader(socket.getInputStream()));
-        this.writer = new RpcWriter(new OutputStreamWriter(socket.getOutputStream()));
+        this.reader = new RpcReader(socket.getInputStream());
+        this.writer = new RpcWriter(socket.getOutputStream());
+        handshake();
+    }
+
+    //agrees on the features if the server offers the handshake, older servers keep offering their protocol before every request
+    private void handshake() throws IOException {
+        RpcMessage offer = reader.readRpcMessage();
+        if (!offer.getMessage().contains(Protocol.HANDSHAKE.name())) {
+            offerRead = true;
+            return;
+        }
+        writer.sendRpcMessage(RpcHandshake.request(Protocol.HANDSHAKE.ordinal(), RpcHandshake.BINARY, RpcHandshake.NO_BANNER, RpcHandshake.MUX, RpcHandshake.PIPELINE));
+        RpcMessage answer = reader.readRpcMessage();
+        if (answer.getCode() != 0) {
+            return;
+        }
+        RpcHandshake handshake = RpcHandshake.of(answer);
+        reader.setBinary(handshake.has(RpcHandshake.BINARY));
+        writer.setBinary(handshake.has(RpcHandshake.BINARY));
+        banner = !handshake.has(RpcHandshake.NO_BANNER);
+        mux = handshake.has(RpcHandshake.MUX);
+        pipeline = handshake.has(RpcHandshake.PIPELINE);
+        if (mux) {
+            Thread t = new Thread(this::demultiplex);
+            t.setDaemon(true);
+            t.start();
+        }
+    }
+
+    private void demultiplex() {
+        try {
+            while (true) {
+                RpcMessage message = reader.readRpcMessage();
+                if (message.getChannel() == 0) {
+                    CompletableFuture<RpcMessage> response = pending.remove(message.getRequestId());
+                    if (response != null) {
+                        response.complete(message);
+                    } else {
+                        responses.add(message);
+                    }
+                    continue;
+                }
+                PlayerServerProxy player = channels.get(message.getChannel());
+                if (player != null) {
+                    player.receive(message);
+                }
+            }
+        } catch (IOException e) {
+            closed = true;
+            responses.add(CLOSED);
+            for (Integer requestId : pending.keySet()) {
+                CompletableFuture<RpcMessage> response = pending.remove(requestId);
+                if (response != null) {
+                    response.completeExceptionally(e);
+                }
+            }
+        }
+    }
+
+    private RpcMessage read() throws IOException {
+        if (!mux) {
+            return reader.readRpcMessage();
+        }
+        try {
+            RpcMessage message = responses.take();
+            if (message == CLOSED) {
+                responses.add(CLOSED);
+                throw new EOFException("Connection closed");
+            }
+            return message;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException(e);
+        }
+    }
+
+    private void readOffer() throws IOException {
+        if (offerRead) {
+            offerRead = false;
+        } else if (banner) {
+            read();
+        }
     }
 
     @Override
     public void movePiece(IPlayer player, String gameId, int fromX, int fromY, int toX, int toY, String promotionFigure) throws GameException, PlayerException, IllegalMoveException {
         try {
-            reader.readRpcMessage();
-            writer.sendRpcMessage(
-                    new RpcMessage(Protocol.MOVE_PIECE.ordinal(),
-                            gameId,
-                            String.valueOf(fromX),
-                            String.valueOf(fromY),
-                            String.valueOf(toX),
-                            String.valueOf(toY),
-                            promotionFigure
-                    )
-            );
-            sendPlayer(player);
-            RpcMessage msg = reader.readRpcMessage();
-            switch (msg.getCode()) {
-                case 0:
-                    break;
-                case 1:
-                    throw new GameException(msg.getMessage());
-                case 2:
-                    throw new PlayerException(msg.getMessage());
-                case 3:
-                    throw new IllegalMoveException(msg.getMessage());
-                default:
-                    throw new RuntimeException(msg.getMessage());
-            }
+            checkMove(await(request(player, Protocol.MOVE_PIECE, gameId, fromX, fromY, toX, toY, promotionFigure)));
         } catch (IOException e) {
             throw new RuntimeException(e.getMessage());
         }
     }
 
+    //with pipelining the move is sent without waiting for the responses of earlier requests
+    public CompletableFuture<Void> movePieceAsync(IPlayer player, String gameId, int fromX, int fromY, int toX, int toY, String promotionFigure) {
+        try {
+            return request(player, Protocol.MOVE_PIECE, gameId, fromX, fromY, toX, toY, promotionFigure).thenAccept(msg -> {
+                try {
+                    checkMove(msg);
+                } catch (GameException | PlayerException | IllegalMoveException e) {
+                    throw new CompletionException(e);
+                }
+            });
+        } catch (IOException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    private static void checkMove(RpcMessage msg) throws GameException, PlayerException, IllegalMoveException {
+        switch (msg.getCode()) {
+            case 0:
+                break;
+            case 1:
+                throw new GameException(msg.getMessage());
+            case 2:
+                throw new PlayerException(msg.getMessage());
+            case 3:
+                throw new IllegalMoveException(msg.getMessage());
+            default:
+                throw new RuntimeException(msg.getMessage());
+        }
+    }
+
     @Override
     public JsonObject getBoard(String gameId) {
         try {
-            reader.readRpcMessage();
-            writer.sendRpcMessage(
-                    new RpcMessage(Protocol.GET_BOARD.ordinal(), gameId)
-            );
-            RpcMessage msg = reader.readRpcMessage();
-            if (msg.getCode() != 0) {
-                throw new RuntimeException(msg.getArg(0));
-            }
-            return JsonParser.parseString(msg.getMessage()).getAsJsonObject();
+            JsonObject board = board(await(request(null, Protocol.GET_BOARD, gameId)));
+            //the board is what the players of the game show, their updates go on from it
+            proxies.values().forEach(proxy -> proxy.loaded(gameId, board));
+            return board;
         } catch (IOException e) {
             throw new RuntimeException(e.getMessage());
         }
     }
 
+    //with pipelining the board is requested without waiting for the responses of earlier requests
+    public CompletableFuture<JsonObject> getBoardAsync(String gameId) {
+        try {
+            return request(null, Protocol.GET_BOARD, gameId).thenApply(ChessServerClientProxy::board);
+        } catch (IOException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    //the updates after the sequence number in "moves", or the whole board if the server no longer keeps all of them
+    @Override
+    public JsonObject getBoardSince(String gameId, int sequence) {
+        try {
+            return board(await(request(null, Protocol.GET_BOARD_SINCE, gameId, sequence)));
+        } catch (IOException e) {
+            throw new RuntimeException(e.getMessage());
+        }
+    }
+
+    private static JsonObject board(RpcMessage msg) {
+        if (msg.getCode() != 0) {
+            throw new RuntimeException(msg.getArg(0));
+        }
+        return JsonParser.parseString(msg.getMessage()).getAsJsonObject();
+    }
+
     @Override
     public String createGame(IPlayer player, Color color) throws JsonException {
         try {
-            reader.readRpcMessage();
-            writer.sendRpcMessage(
-                    new RpcMessage(Protocol.CREATE_GAME.ordinal(), color.name())
-            );
-            sendPlayer(player);
-            RpcMessage msg = reader.readRpcMessage();
+            RpcMessage msg = await(request(player, Protocol.CREATE_GAME, color.name()));
             if (msg.getCode() == 4) {
                 throw new JsonException(msg.getMessage());
             }
             if (msg.getCode() != 0) {
                 throw new RuntimeException(msg.getMessage());
             }
+            joined(player, msg.getMessage());
             return msg.getMessage();
         } catch (IOException e) {
             throw new RuntimeException(e.getMessage());
@@ -112,12 +247,7 @@ public class ChessServerClientProxy implements IChessServer {
     @Override
     public Color joinGame(IPlayer player, String gameId) throws GameException, PlayerException {
         try {
-            reader.readRpcMessage();
-            writer.sendRpcMessage(
-                    new RpcMessage(Protocol.JOIN_GAME.ordinal(), gameId)
-            );
-            sendPlayer(player);
-            RpcMessage msg = reader.readRpcMessage();
+            RpcMessage msg = await(request(player, Protocol.JOIN_GAME, gameId));
             switch (msg.getCode()) {
                 case 0:
                     break;
@@ -128,6 +258,7 @@ public class ChessServerClientProxy implements IChessServer {
                 default:
                     throw new RuntimeException(msg.getMessage());
             }
+            joined(player, gameId);
             return Color.valueOf(msg.getMessage());
         } catch (IOException e) {
             throw new RuntimeException(e.getMessage());
@@ -137,12 +268,7 @@ public class ChessServerClientProxy implements IChessServer {
     @Override
     public void leaveGame(IPlayer player, String gameId) {
         try {
-            reader.readRpcMessage();
-            writer.sendRpcMessage(
-                    new RpcMessage(Protocol.LEAVE_GAME.ordinal(), gameId)
-            );
-            sendPlayer(player);
-            RpcMessage msg = reader.readRpcMessage();
+            RpcMessage msg = await(request(player, Protocol.LEAVE_GAME, gameId));
             if (msg.getCode() != 0) {
                 throw new RuntimeException(msg.getMessage());
             }
@@ -151,6 +277,55 @@ public class ChessServerClientProxy implements IChessServer {
         }
     }
 
+    private void joined(IPlayer player, String gameId) {
+        PlayerServerProxy proxy = proxies.get(player);
+        if (proxy != null) {
+            proxy.joined(gameId);
+        }
+    }
+
+    //sends a request for the player, or for no player if null; with pipelining the request is numbered and carries
+    //the player and its channel, the response is matched by the number and may come before those of earlier requests
+    private CompletableFuture<RpcMessage> request(IPlayer player, Protocol protocol, Object... args) throws IOException {
+        if (!pipeline) {
+            lock.lock();
+            try {
+                readOffer();
+                writer.sendRpcMessage(new RpcMessage(protocol.ordinal(), args));
+                if (player != null) {
+                    sendPlayer(player);
+                }
+                return CompletableFuture.completedFuture(read());
+            } finally {
+                lock.unlock();
+            }
+        }
+        if (player != null) {
+            args = Arrays.copyOf(args, args.length + 2);
+            args[args.length - 2] = player.getId();
+            args[args.length - 1] = channelOf(player).getChannel();
+        }
+        int requestId = Math.floorMod(nextRequestId.incrementAndGet(), Integer.MAX_VALUE) + 1;
+        CompletableFuture<RpcMessage> response = new CompletableFuture<>();
+        pending.put(requestId, response);
+        writer.sendRpcMessage(new RpcMessage(protocol.ordinal(), args).forRequest(requestId));
+        if (closed && pending.remove(requestId) != null) {
+            response.completeExceptionally(new EOFException("Connection closed"));
+        }
+        return response;
+    }
+
+    private static RpcMessage await(CompletableFuture<RpcMessage> response) throws IOException {
+        try {
+            return response.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException(e);
+        } catch (ExecutionException e) {
+            throw new IOException(e.getCause().getMessage(), e.getCause());
+        }
+    }
+
     @Override
     public void endConnection() {
         try {
@@ -160,7 +335,7 @@ public class ChessServerClientProxy implements IChessServer {
                 }
                 playerServerProxy.endConnection();
             }
-            reader.readRpcMessage();
+            readOffer();
             writer.sendRpcMessage(
                     new RpcMessage(Protocol.END_CONNECTION.ordinal())
             );
@@ -171,6 +346,10 @@ public class ChessServerClientProxy implements IChessServer {
     }
 
     private void sendPlayer(IPlayer player) throws IOException {
+        if (mux) {
+            sendChannelPlayer(player);
+            return;
+        }
         reader.readRpcMessage();
         writer.sendRpcMessage(new RpcMessage(0, player.getId()));
         RpcMessage message = reader.readRpcMessage();
@@ -179,13 +358,30 @@ public class ChessServerClientProxy implements IChessServer {
             String ip = LocalIPv4.get();
             int port = serverSocket.getLocalPort();
             writer.sendRpcMessage(
-                    new RpcMessage(0, ip, String.valueOf(port))
+                    new RpcMessage(0, ip, port)
             );
             Socket socket = serverSocket.accept();
-            PlayerServerProxy playerServerProxy = new PlayerServerProxy(socket, player);
+            PlayerServerProxy playerServerProxy = new PlayerServerProxy(socket, player, this);
             Thread t = new Thread(playerServerProxy);
             openPlayerProxys.add(playerServerProxy);
+            proxies.put(player, playerServerProxy);
             t.start();
         }
     }
+
+    private void sendChannelPlayer(IPlayer player) throws IOException {
+        read();
+        writer.sendRpcMessage(new RpcMessage(0, player.getId(), channelOf(player).getChannel()));
+        read();
+    }
+
+    //a new player gets the next channel, the server calls it there
+    private PlayerServerProxy channelOf(IPlayer player) {
+        return channelPlayers.computeIfAbsent(player, p -> {
+            PlayerServerProxy proxy = new PlayerServerProxy(p, writer, nextChannel.incrementAndGet(), this);
+            channels.put(proxy.getChannel(), proxy);
+            proxies.put(p, proxy);
+            return proxy;
+        });
+    }
 }
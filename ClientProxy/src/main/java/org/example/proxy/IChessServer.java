@@ -18,5 +18,7 @@ public interface IChessServer {
 
     JsonObject getBoard(String gameId) throws GameException;
 
+    JsonObject getBoardSince(String gameId, int sequence) throws GameException;
+
     void endConnection();
 }
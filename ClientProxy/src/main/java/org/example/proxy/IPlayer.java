@@ -1,8 +1,13 @@
 package org.example.proxy;
 
+import com.google.gson.JsonObject;
+
 public interface IPlayer {
     void updateGame(int fromX, int fromY, int toX, int toY, String promotionFigure, boolean gameOver, String message) throws IllegalStateException;
 
+    //replaces the board with the one of the server, when more updates were missed than it keeps
+    void loadBoard(JsonObject board);
+
     void receiveMessage(String message);
 
     void startGame();
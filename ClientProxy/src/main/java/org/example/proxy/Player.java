@@ -1,6 +1,8 @@
 package org.example.proxy;
 
+import com.google.gson.JsonObject;
 import javafx.application.Platform;
+import org.example.ui.BoardLoader;
 import org.example.ui.ChessField;
 import org.example.ui.ChessGameUI;
 import org.example.ui.figure.Color;
@@ -41,6 +43,11 @@ public class Player implements IPlayer {
         });
     }
 
+    @Override
+    public void loadBoard(JsonObject board) {
+        Platform.runLater(() -> BoardLoader.load(board, ChessGameUI.getBoard()));
+    }
+
     @Override
     public void receiveMessage(String message) {
         Platform.runLater(
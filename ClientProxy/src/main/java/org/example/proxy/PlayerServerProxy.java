@@ -1,25 +1,44 @@
 package org.example.proxy;
 
+import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
 import com.google.gson.JsonParser;
+import org.example.exceptions.GameException;
+import org.example.rpc.RpcHandshake;
 import org.example.rpc.RpcMessage;
 import org.example.rpc.RpcReader;
 import org.example.rpc.RpcWriter;
 
 import java.io.IOException;
-import java.io.InputStreamReader;
-import java.io.OutputStreamWriter;
 import java.net.Socket;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 public class PlayerServerProxy implements Runnable {
     private final Socket socket;
     private final IPlayer player;
     private RpcReader reader;
     private RpcWriter writer;
+    //channel of the connection to the server when the calls are multiplexed over it, there is no socket of its own then
+    private final int channel;
     private boolean running = true;
+    //legacy servers read the protocol offer before every call
+    private boolean banner = true;
+    //fetches the updates a gap shows are missing
+    private final IChessServer server;
+    private volatile String gameId;
+    //number of the last update applied, a gap shows that updates are missing
+    private int sequence = 0;
+    //updates that come in while the missing ones are fetched wait for them
+    private boolean catchingUp = false;
+    private final Deque<JsonObject> waiting = new ArrayDeque<>();
 
     private enum Protocol {
-        UPDATE_GAME, RECEIVE_MESSAGE, START_GAME, STILL_ALIVE, END_CONNECTION;
+        UPDATE_GAME, RECEIVE_MESSAGE, START_GAME, STILL_ALIVE, END_CONNECTION, HANDSHAKE;
 
         public static Protocol fromOrdinal(int i) {
             for (Protocol protocol : Protocol.values()) {
@@ -42,6 +61,7 @@ public class PlayerServerProxy implements Runnable {
             return switch (this) {
                 case UPDATE_GAME -> getProtocolBegin() + "<JSON>";
                 case RECEIVE_MESSAGE -> getProtocolBegin() + "<message>";
+                case HANDSHAKE -> getProtocolBegin() + "<version>,<features>";
                 case START_GAME, STILL_ALIVE, END_CONNECTION -> getProtocolBegin();
             };
         }
@@ -51,25 +71,38 @@ public class PlayerServerProxy implements Runnable {
         }
     }
 
-    public PlayerServerProxy(Socket socket, IPlayer player) {
+    public PlayerServerProxy(Socket socket, IPlayer player, IChessServer server) {
         this.player = player;
         this.socket = socket;
+        this.channel = 0;
+        this.server = server;
+    }
+
+    public PlayerServerProxy(IPlayer player, RpcWriter writer, int channel, IChessServer server) {
+        this.player = player;
+        this.socket = null;
+        this.writer = writer;
+        this.channel = channel;
+        this.server = server;
     }
 
     @Override
     public void run() {
         try {
-            this.reader = new RpcReader(new InputStreamReader(socket.getInputStream()));
-            this.writer = new RpcWriter(new OutputStreamWriter(socket.getOutputStream()));
+            this.reader = new RpcReader(socket.getInputStream());
+            this.writer = new RpcWriter(socket.getOutputStream());
             while (running) {
-                writer.sendMessage(0, Protocol.getProtocol());
+                if (banner) {
+                    writer.sendMessage(0, Protocol.getProtocol());
+                }
                 RpcMessage message = reader.readRpcMessage();
-                switch (Protocol.fromOrdinal(message.getCode())) {
-                    case UPDATE_GAME -> updateGame(message);
-                    case RECEIVE_MESSAGE -> receiveMessage(message);
-                    case END_CONNECTION -> endConnection();
-                    case STILL_ALIVE -> stillAlive();
-                    case START_GAME -> startGame();
+                if (Protocol.fromOrdinal(message.getCode()) == Protocol.HANDSHAKE) {
+                    handshake(message);
+                    continue;
+                }
+                RpcMessage answer = handle(message);
+                if (answer != null) {
+                    writer.sendRpcMessage(answer);
                 }
             }
         } catch (IOException e) {
@@ -77,13 +110,134 @@ public class PlayerServerProxy implements Runnable {
         }
     }
 
+    //a call of the server on the channel of this player, answered with the number of the call
+    public void receive(RpcMessage message) throws IOException {
+        RpcMessage answer = handle(message);
+        if (answer != null) {
+            writer.sendRpcMessage(answer.onChannel(channel).forRequest(message.getRequestId()));
+        }
+    }
+
+    private RpcMessage handle(RpcMessage message) throws IOException {
+        return switch (Protocol.fromOrdinal(message.getCode())) {
+            case UPDATE_GAME -> updateGame(message);
+            case RECEIVE_MESSAGE -> receiveMessage(message);
+            case STILL_ALIVE -> stillAlive();
+            case START_GAME -> startGame();
+            case HANDSHAKE -> new RpcMessage(1, "Handshake only at the start of a connection");
+            case END_CONNECTION -> {
+                endConnection();
+                yield null;
+            }
+        };
+    }
+
+    public int getChannel() {
+        return channel;
+    }
+
+    public synchronized int getSequence() {
+        return sequence;
+    }
+
+    //the updates of a new game are numbered from the start again
+    public synchronized void joined(String gameId) {
+        this.gameId = gameId;
+        sequence = 0;
+        waiting.clear();
+    }
+
+    //the player shows the board now, e.g. of a game it joined after moves were played
+    public synchronized void loaded(String gameId, JsonObject board) {
+        if (gameId.equals(this.gameId) && board.has("sequence")) {
+            sequence = Math.max(sequence, board.get("sequence").getAsInt());
+        }
+    }
+
     public void endConnection() throws IOException {
         this.running = false;
-        socket.close();
+        if (socket != null) {
+            socket.close();
+        }
+    }
+
+    //the answer is the last text frame, everything after it uses the agreed features
+    private void handshake(RpcMessage message) {
+        RpcHandshake handshake = RpcHandshake.accept(message, RpcHandshake.BINARY, RpcHandshake.NO_BANNER);
+        writer.sendRpcMessage(handshake.answer());
+        reader.setBinary(handshake.has(RpcHandshake.BINARY));
+        writer.setBinary(handshake.has(RpcHandshake.BINARY));
+        banner = !handshake.has(RpcHandshake.NO_BANNER);
     }
 
-    private void updateGame(RpcMessage message) {
+    private RpcMessage updateGame(RpcMessage message) {
         JsonObject json = JsonParser.parseString(message.getMessage()).getAsJsonObject();
+        //older servers do not number their updates
+        if (!json.has("sequence")) {
+            return apply(json);
+        }
+        return receive(json);
+    }
+
+    //an update after a gap is applied once the updates in the gap have been fetched and applied, on a thread of the pool
+    //and not on the one of the pushes, which may also have to read the answer
+    private synchronized RpcMessage receive(JsonObject update) {
+        int next = update.get("sequence").getAsInt();
+        if (catchingUp) {
+            waiting.add(update);
+            return new RpcMessage(0, "success");
+        }
+        if (next <= sequence) {
+            //already part of what was fetched
+            return new RpcMessage(0, "success");
+        }
+        if (next > sequence + 1 && gameId != null) {
+            catchingUp = true;
+            waiting.add(update);
+            String game = gameId;
+            int since = sequence;
+            CompletableFuture.supplyAsync(() -> {
+                try {
+                    return server.getBoardSince(game, since);
+                } catch (GameException e) {
+                    throw new CompletionException(e);
+                }
+            }).whenComplete((board, e) -> caughtUp(game, board));
+            return new RpcMessage(0, "success");
+        }
+        return apply(update);
+    }
+
+    //applies the missing updates, or the whole board if the server no longer keeps them, and then the waiting updates;
+    //if the board could not be fetched the waiting updates are applied as they are
+    private synchronized void caughtUp(String game, JsonObject board) {
+        catchingUp = false;
+        if (!game.equals(gameId)) {
+            return;
+        }
+        List<JsonObject> updates = new ArrayList<>(waiting);
+        waiting.clear();
+        if (board == null) {
+            updates.forEach(this::apply);
+            return;
+        }
+        if (board.has("moves")) {
+            for (JsonElement move : board.getAsJsonArray("moves")) {
+                if (move.getAsJsonObject().get("sequence").getAsInt() == sequence + 1) {
+                    apply(move.getAsJsonObject());
+                }
+            }
+        } else {
+            player.loadBoard(board);
+            sequence = board.get("sequence").getAsInt();
+        }
+        updates.forEach(this::receive);
+    }
+
+    private RpcMessage apply(JsonObject json) {
+        if (json.has("sequence")) {
+            sequence = json.get("sequence").getAsInt();
+        }
         try {
             player.updateGame(
                     json.get("fromX").getAsInt(),
@@ -94,24 +248,24 @@ public class PlayerServerProxy implements Runnable {
                     json.get("gameOver").getAsBoolean(),
                     json.get("message").getAsString()
             );
-            writer.sendSuccess();
+            return new RpcMessage(0, "success");
         } catch (IllegalStateException e) {
-            writer.println("1: " + e.getMessage());
+            return new RpcMessage(1, e.getMessage());
         }
     }
 
-    private void receiveMessage(RpcMessage message) {
+    private RpcMessage receiveMessage(RpcMessage message) {
         String msg = message.getArg(0);
         player.receiveMessage(msg);
-        writer.sendSuccess();
+        return new RpcMessage(0, "success");
     }
 
-    private void startGame() {
+    private RpcMessage startGame() {
         player.startGame();
-        writer.sendSuccess();
+        return new RpcMessage(0, "success");
     }
 
-    private void stillAlive() {
-        writer.sendSuccess();
+    private RpcMessage stillAlive() {
+        return new RpcMessage(0, "success");
     }
 }
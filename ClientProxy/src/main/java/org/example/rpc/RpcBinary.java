@@ -0,0 +1,204 @@
+package org.example.rpc;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+//binary frame format negotiated with the handshake: the varint length of the rest of the frame, the varint channel,
+//the varint request id, the varint code, the varint number of arguments and the arguments, each a tag byte followed by the value
+public final class RpcBinary {
+    static final int MAX_FRAME_LENGTH = 1 << 20;
+
+    private static final int STRING = 0;
+    private static final int INT = 1;
+    private static final int PIECE = 2;
+    //figure names, mostly promotions, are sent as their index
+    private static final String[] PIECES = {"", "null", "pawn", "knight", "bishop", "rook", "queen", "king"};
+
+    private RpcBinary() {
+    }
+
+    public static byte[] encode(RpcMessage msg) {
+        Output out = new Output();
+        out.varint(msg.getChannel());
+        out.varint(msg.getRequestId());
+        out.varint(msg.getCode());
+        out.varint(msg.getArgCount());
+        for (int i = 0; i < msg.getArgCount(); i++) {
+            Object value = msg.getValue(i);
+            if (value instanceof Integer n) {
+                out.write(INT);
+                //zigzag, so small negative numbers stay short
+                out.varint(n << 1 ^ n >> 31);
+                continue;
+            }
+            String s = String.valueOf(value);
+            int piece = pieceIndex(s);
+            if (piece >= 0) {
+                out.write(PIECE);
+                out.write(piece);
+                continue;
+            }
+            byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+            out.write(STRING);
+            out.varint(bytes.length);
+            out.write(bytes);
+        }
+        return out.frame();
+    }
+
+    //decodes a frame without its length prefix
+    public static RpcMessage decode(byte[] frame, int offset, int length) throws IOException {
+        Input in = new Input(frame, offset, offset + length);
+        int channel = in.varint();
+        int requestId = in.varint();
+        int code = in.varint();
+        int count = in.varint();
+        if (count > length) {
+            throw new IOException("Invalid argument count " + count);
+        }
+        Object[] args = new Object[count];
+        for (int i = 0; i < count; i++) {
+            switch (in.read()) {
+                case STRING -> {
+                    int size = in.varint();
+                    args[i] = new String(frame, in.take(size), size, StandardCharsets.UTF_8);
+                }
+                case INT -> {
+                    int n = in.varint();
+                    args[i] = n >>> 1 ^ -(n & 1);
+                }
+                case PIECE -> {
+                    int piece = in.read();
+                    if (piece >= PIECES.length) {
+                        throw new IOException("Invalid piece " + piece);
+                    }
+                    args[i] = PIECES[piece];
+                }
+                default -> throw new IOException("Invalid argument type");
+            }
+        }
+        return new RpcMessage(code, args).onChannel(channel).forRequest(requestId);
+    }
+
+    //reads the length prefix of the next frame, blocking
+    public static int readLength(InputStream in) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            int b = in.read();
+            if (b < 0) {
+                throw new EOFException("Connection closed");
+            }
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return checkLength(value);
+            }
+        }
+        throw new IOException("Invalid frame length");
+    }
+
+    static int checkLength(int length) throws IOException {
+        if (length <= 0 || length > MAX_FRAME_LENGTH) {
+            throw new IOException("Invalid frame length " + length);
+        }
+        return length;
+    }
+
+    private static int pieceIndex(String s) {
+        for (int i = 0; i < PIECES.length; i++) {
+            if (PIECES[i].equals(s)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static class Output {
+        //five bytes are reserved for the length prefix, which is moved in front of the frame at the end
+        private byte[] bytes = new byte[64];
+        private int length = 5;
+
+        void write(int b) {
+            if (length == bytes.length) {
+                bytes = Arrays.copyOf(bytes, length * 2);
+            }
+            bytes[length++] = (byte) b;
+        }
+
+        void write(byte[] b) {
+            if (length + b.length > bytes.length) {
+                bytes = Arrays.copyOf(bytes, Math.max(length * 2, length + b.length));
+            }
+            System.arraycopy(b, 0, bytes, length, b.length);
+            length += b.length;
+        }
+
+        void varint(int value) {
+            while ((value & ~0x7F) != 0) {
+                write(value & 0x7F | 0x80);
+                value >>>= 7;
+            }
+            write(value);
+        }
+
+        byte[] frame() {
+            int payload = length - 5;
+            int start = 5;
+            int prefix = payload;
+            int prefixLength = 1;
+            while ((prefix >>>= 7) != 0) {
+                prefixLength++;
+            }
+            start -= prefixLength;
+            int value = payload;
+            for (int i = start; i < 5; i++) {
+                bytes[i] = (byte) (i == 4 ? value & 0x7F : value & 0x7F | 0x80);
+                value >>>= 7;
+            }
+            return Arrays.copyOfRange(bytes, start, length);
+        }
+    }
+
+    private static class Input {
+        private final byte[] bytes;
+        private int position;
+        private final int end;
+
+        Input(byte[] bytes, int position, int end) {
+            this.bytes = bytes;
+            this.position = position;
+            this.end = end;
+        }
+
+        int read() throws IOException {
+            if (position == end) {
+                throw new IOException("Truncated frame");
+            }
+            return bytes[position++] & 0xFF;
+        }
+
+        int varint() throws IOException {
+            int value = 0;
+            for (int shift = 0; shift < 32; shift += 7) {
+                int b = read();
+                value |= (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return value;
+                }
+            }
+            throw new IOException("Invalid varint");
+        }
+
+        //returns the offset of the next size bytes and skips them
+        int take(int size) throws IOException {
+            if (size < 0 || size > end - position) {
+                throw new IOException("Truncated frame");
+            }
+            int offset = position;
+            position += size;
+            return offset;
+        }
+    }
+}
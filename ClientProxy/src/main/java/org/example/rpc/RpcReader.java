@@ -1,17 +1,39 @@
 package org.example.rpc;
 
-import java.io.BufferedReader;
+import java.io.BufferedInputStream;
+import java.io.EOFException;
 import java.io.IOException;
-import java.io.Reader;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
 
-public class RpcReader extends BufferedReader {
-    public RpcReader(Reader in) {
-        super(in);
+//reads lines of text or, once switched, binary frames from the same buffered stream
+public class RpcReader {
+    private final InputStream in;
+    private byte[] frame = new byte[256];
+    private boolean binary = false;
+
+    public RpcReader(InputStream in) {
+        this.in = new BufferedInputStream(in);
+    }
+
+    public void setBinary(boolean binary) {
+        this.binary = binary;
     }
 
     public RpcMessage readRpcMessage() throws IOException {
+        if (binary) {
+            int length = RpcBinary.readLength(in);
+            ensureCapacity(length);
+            if (in.readNBytes(frame, 0, length) < length) {
+                throw new EOFException("Connection closed");
+            }
+            RpcMessage msg = RpcBinary.decode(frame, 0, length);
+//            System.out.println(Thread.currentThread().threadId() + ": Reading: " + msg);
+            return msg;
+        }
         try {
-            String msg = super.readLine();
+            String msg = readLine();
 //            System.out.println(Thread.currentThread().threadId() + ": Reading: " + msg);
             return new RpcMessage(msg);
         } catch (NumberFormatException e) {
@@ -19,8 +41,29 @@ public class RpcReader extends BufferedReader {
         }
     }
 
-    @Override
-    public String readLine() {
-        throw new RuntimeException("RpcReader#readLine Not implemented");
+    private String readLine() throws IOException {
+        int length = 0;
+        int b;
+        while ((b = in.read()) != '\n') {
+            if (b < 0) {
+                throw new EOFException("Connection closed");
+            }
+            if (length == RpcBinary.MAX_FRAME_LENGTH) {
+                throw new IOException("Line exceeds " + RpcBinary.MAX_FRAME_LENGTH + " bytes");
+            }
+            ensureCapacity(length + 1);
+            frame[length++] = (byte) b;
+        }
+        //PrintWriter#println ends lines with the line separator of the platform
+        if (length > 0 && frame[length - 1] == '\r') {
+            length--;
+        }
+        return new String(frame, 0, length, StandardCharsets.UTF_8);
+    }
+
+    private void ensureCapacity(int length) {
+        if (length > frame.length) {
+            frame = Arrays.copyOf(frame, Math.max(length, frame.length * 2));
+        }
     }
-}
\ No newline at end of file
+}
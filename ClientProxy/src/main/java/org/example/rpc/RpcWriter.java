@@ -1,23 +1,44 @@
 package org.example.rpc;
 
-import java.io.PrintWriter;
-import java.io.Writer;
-
-public class RpcWriter extends PrintWriter {
-    public RpcWriter(Writer out) {
-        super(out);
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.locks.ReentrantLock;
+
+//writes lines of text or, once switched, binary frames
+public class RpcWriter {
+    private final OutputStream out;
+    private boolean binary = false;
+    private boolean error = false;
+    //answers to multiplexed channels are written by other threads than the requests
+    private final ReentrantLock lock = new ReentrantLock();
+
+    public RpcWriter(OutputStream out) {
+        this.out = new BufferedOutputStream(out);
     }
 
-    @Override
-    public void println(String x) {
-        // Not implemented
-        throw new RuntimeException("RpcWriter#println Not implemented");
+    public void setBinary(boolean binary) {
+        this.binary = binary;
     }
 
     public void sendRpcMessage(RpcMessage msg) {
 //        System.out.println(Thread.currentThread().threadId() + ": Writing: " + msg.toString());
-        super.println(msg);
-        super.flush();
+        byte[] bytes = binary ? RpcBinary.encode(msg) : (msg + System.lineSeparator()).getBytes(StandardCharsets.UTF_8);
+        lock.lock();
+        try {
+            out.write(bytes);
+            out.flush();
+        } catch (IOException e) {
+            //like PrintWriter, a failed write shows when reading the answer
+            error = true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public boolean checkError() {
+        return error;
     }
 
     public void sendSuccess() {
@@ -29,4 +50,3 @@ public class RpcWriter extends PrintWriter {
     }
 
 }
-
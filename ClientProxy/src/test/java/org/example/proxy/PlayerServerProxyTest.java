@@ -0,0 +1,160 @@
+package org.example.proxy;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import org.example.rpc.RpcMessage;
+import org.example.rpc.RpcWriter;
+import org.example.ui.figure.Color;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PlayerServerProxyTest {
+
+    @Test
+    void updateGame_shouldFetchTheMissedUpdatesOfAGapFirst() throws IOException, InterruptedException {
+        // Arrange
+        RecordingPlayer player = new RecordingPlayer(4);
+        JsonObject since = new JsonObject();
+        since.addProperty("sequence", 3);
+        JsonArray moves = new JsonArray();
+        moves.add(update(2));
+        moves.add(update(3));
+        since.add("moves", moves);
+        FakeServer server = new FakeServer(since);
+        PlayerServerProxy proxy = new PlayerServerProxy(player, new RpcWriter(new ByteArrayOutputStream()), 1, server);
+        proxy.joined("GAME01");
+
+        // Act
+        proxy.receive(new RpcMessage(0, update(1).toString()));
+        proxy.receive(new RpcMessage(0, update(3).toString()));
+        proxy.receive(new RpcMessage(0, update(4).toString()));
+
+        // Assert
+        assertTrue(player.done.await(5, TimeUnit.SECONDS));
+        assertEquals(List.of(1, 2, 3, 4), player.updates);
+        assertEquals(List.of(1), server.asked);
+        assertEquals(4, proxy.getSequence());
+    }
+
+    @Test
+    void updateGame_shouldLoadTheBoardIfTheServerNoLongerKeepsTheGap() throws IOException, InterruptedException {
+        // Arrange
+        RecordingPlayer player = new RecordingPlayer(2);
+        JsonObject board = new JsonObject();
+        board.addProperty("sequence", 30);
+        FakeServer server = new FakeServer(board);
+        PlayerServerProxy proxy = new PlayerServerProxy(player, new RpcWriter(new ByteArrayOutputStream()), 1, server);
+        proxy.joined("GAME01");
+
+        // Act
+        proxy.receive(new RpcMessage(0, update(20).toString()));
+        proxy.receive(new RpcMessage(0, update(31).toString()));
+
+        // Assert
+        assertTrue(player.done.await(5, TimeUnit.SECONDS));
+        assertEquals(List.of(31), player.updates);
+        assertEquals(List.of(board), player.boards);
+        assertEquals(List.of(0), server.asked);
+    }
+
+    private static JsonObject update(int sequence) {
+        JsonObject json = new JsonObject();
+        json.addProperty("fromX", 4);
+        json.addProperty("fromY", 6);
+        json.addProperty("toX", 4);
+        json.addProperty("toY", 4);
+        json.addProperty("promotionFigure", "");
+        json.addProperty("gameOver", false);
+        json.addProperty("message", String.valueOf(sequence));
+        json.addProperty("sequence", sequence);
+        return json;
+    }
+
+    //counts down for every update and board, the message of an update is its sequence number
+    private static class RecordingPlayer implements IPlayer {
+        private final List<Integer> updates = new CopyOnWriteArrayList<>();
+        private final List<JsonObject> boards = new CopyOnWriteArrayList<>();
+        private final CountDownLatch done;
+
+        RecordingPlayer(int expected) {
+            done = new CountDownLatch(expected);
+        }
+
+        @Override
+        public void updateGame(int fromX, int fromY, int toX, int toY, String promotionFigure, boolean gameOver, String message) {
+            updates.add(Integer.parseInt(message));
+            done.countDown();
+        }
+
+        @Override
+        public void loadBoard(JsonObject board) {
+            boards.add(board);
+            done.countDown();
+        }
+
+        @Override
+        public void receiveMessage(String message) {
+        }
+
+        @Override
+        public void startGame() {
+        }
+
+        @Override
+        public String getId() {
+            return "player";
+        }
+    }
+
+    private static class FakeServer implements IChessServer {
+        private final JsonObject since;
+        private final List<Integer> asked = new CopyOnWriteArrayList<>();
+
+        FakeServer(JsonObject since) {
+            this.since = since;
+        }
+
+        @Override
+        public JsonObject getBoardSince(String gameId, int sequence) {
+            asked.add(sequence);
+            return since;
+        }
+
+        @Override
+        public String createGame(IPlayer player, Color color) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Color joinGame(IPlayer player, String gameId) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void leaveGame(IPlayer player, String gameId) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void movePiece(IPlayer player, String gameId, int fromX, int fromY, int toX, int toY, String promotionFigure) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public JsonObject getBoard(String gameId) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void endConnection() {
+        }
+    }
+}
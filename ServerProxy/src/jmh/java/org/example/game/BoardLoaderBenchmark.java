@@ -0,0 +1,56 @@
+package org.example.game;
+
+import com.google.gson.JsonObject;
+import org.example.exceptions.JsonException;
+import org.example.game.figure.FigureFactory;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BoardLoaderBenchmark {
+
+    @Param({"init", "kiwipete"})
+    public String position;
+
+    private ChessBoard board;
+    private BoardLoader boardLoader;
+    private JsonObject init;
+
+    @Setup(Level.Trial)
+    public void setUp() throws JsonException {
+        board = Perft.load(position);
+        boardLoader = new BoardLoader(new FigureFactory(board));
+        init = boardLoader.getCurrentBoard(Perft.load("init"));
+    }
+
+    @Benchmark
+    public ChessBoard loadNewBoard() throws JsonException {
+        ChessBoard board = new ChessBoard();
+        new BoardLoader(new FigureFactory(board)).loadNewBoard(board);
+        return board;
+    }
+
+    //the starting position figure by figure from its json, as every game did before the template
+    @Benchmark
+    public ChessBoard parseNewBoard() throws JsonException {
+        ChessBoard board = new ChessBoard();
+        new BoardLoader(new FigureFactory(board)).loadBoard(board, init);
+        return board;
+    }
+
+    @Benchmark
+    public JsonObject getCurrentBoard() {
+        return boardLoader.getCurrentBoard(board);
+    }
+
+    @Benchmark
+    public String getCurrentBoardAsString() {
+        return boardLoader.getCurrentBoard(board).toString();
+    }
+}
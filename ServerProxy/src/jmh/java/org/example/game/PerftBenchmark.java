@@ -0,0 +1,40 @@
+package org.example.game;
+
+import org.example.exceptions.JsonException;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+//kiwipete, position4 and position5 at depth 5 take seconds up to minutes per operation,
+//narrow the parameters down with jmh.benchmarkParameters in build.gradle when iterating on the engine
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PerftBenchmark {
+
+    @Param({"init", "kiwipete", "position3", "position4", "position5"})
+    public String position;
+
+    @Param({"1", "2", "3", "4", "5"})
+    public int depth;
+
+    private ChessBoard board;
+
+    @Setup(Level.Trial)
+    public void setUp() throws JsonException {
+        board = Perft.load(position);
+        long expected = Perft.RESULTS.get(position)[depth - 1];
+        long nodes = Perft.perft(board, depth);
+        if (nodes != expected) {
+            throw new IllegalStateException("perft(" + position + ", " + depth + ") = " + nodes + ", expected " + expected);
+        }
+    }
+
+    @Benchmark
+    public long perft() {
+        return Perft.perft(board, depth);
+    }
+}
@@ -0,0 +1,57 @@
+package org.example.proxy;
+
+import org.example.exceptions.IllegalMoveException;
+import org.example.exceptions.JsonException;
+import org.example.exceptions.PlayerException;
+import org.example.game.Color;
+import org.example.game.PositionCache;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ChessGameBenchmark {
+
+    //fromX, fromY, toX, toY of an italian opening with castling on both sides, ending in a quiet position
+    static final int[][] OPENING = {
+            {4, 6, 4, 4}, {4, 1, 4, 3}, {6, 7, 5, 5}, {1, 0, 2, 2}, {5, 7, 2, 4}, {5, 0, 2, 3},
+            {2, 6, 2, 5}, {6, 0, 5, 2}, {3, 6, 3, 5}, {3, 1, 3, 2}, {4, 7, 6, 7}, {4, 0, 6, 0},
+            {1, 7, 3, 6}, {0, 1, 0, 2}, {7, 6, 7, 5}, {2, 0, 4, 2}
+    };
+
+    private final IPlayer white = new NoOpPlayer("white");
+    private final IPlayer black = new NoOpPlayer("black");
+    //shared by all invocations like it is by all games of a server, so the opening positions are hits
+    private final PositionCache positionCache = new PositionCache(1024);
+
+    @Benchmark
+    public ChessGame createGame() throws JsonException, PlayerException {
+        ChessGame game = new ChessGame("BENCH1", white, Color.WHITE);
+        game.join(black);
+        return game;
+    }
+
+    @Benchmark
+    public ChessGame playOpening() throws JsonException, PlayerException, IllegalMoveException {
+        return playOpening(new ChessGame("BENCH1", white, Color.WHITE));
+    }
+
+    @Benchmark
+    public ChessGame playOpeningCached() throws JsonException, PlayerException, IllegalMoveException {
+        return playOpening(new ChessGame("BENCH1", white, Color.WHITE, positionCache));
+    }
+
+    private ChessGame playOpening(ChessGame game) throws PlayerException, IllegalMoveException {
+        game.join(black);
+        for (int i = 0; i < OPENING.length; i++) {
+            int[] move = OPENING[i];
+            game.movePiece(i % 2 == 0 ? white : black, move[0], move[1], move[2], move[3], "");
+        }
+        return game;
+    }
+}
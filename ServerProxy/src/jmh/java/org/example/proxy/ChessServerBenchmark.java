@@ -0,0 +1,64 @@
+package org.example.proxy;
+
+import com.google.gson.JsonObject;
+import org.example.game.Color;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+//games of different threads only share the registry and the threads of the server, so their throughput should grow
+//with the threads, while the reads of one game by all threads queue up in its mailbox
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ChessServerBenchmark {
+
+    private final ChessServer server = new ChessServer();
+    private String sharedGameId;
+
+    @State(Scope.Thread)
+    public static class Players {
+        private final IPlayer white = new NoOpPlayer("white");
+        private final IPlayer black = new NoOpPlayer("black");
+    }
+
+    @Setup
+    public void setUp() {
+        sharedGameId = server.createGame(new NoOpPlayer("white"), Color.WHITE).join();
+        server.joinGame(new NoOpPlayer("black"), sharedGameId).join();
+    }
+
+    @Benchmark
+    @Threads(1)
+    public String playOpeningOneThread(Players players) {
+        return playOpening(players);
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public String playOpeningAllThreads(Players players) {
+        return playOpening(players);
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public JsonObject getBoardOfOneGame() {
+        return server.getBoard(sharedGameId).join();
+    }
+
+    //a game of its own from creating to leaving it
+    private String playOpening(Players players) {
+        String gameId = server.createGame(players.white, Color.WHITE).join();
+        server.joinGame(players.black, gameId).join();
+        for (int i = 0; i < ChessGameBenchmark.OPENING.length; i++) {
+            int[] move = ChessGameBenchmark.OPENING[i];
+            server.movePiece(i % 2 == 0 ? players.white : players.black, gameId, move[0], move[1], move[2], move[3], "").join();
+        }
+        server.leaveGame(players.white, gameId).join();
+        server.leaveGame(players.black, gameId).join();
+        return gameId;
+    }
+}
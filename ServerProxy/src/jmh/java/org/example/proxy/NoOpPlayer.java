@@ -0,0 +1,43 @@
+package org.example.proxy;
+
+//player without a connection, so that benchmarks only measure the game itself
+public class NoOpPlayer implements IPlayer {
+    private final String id;
+    private ChessGame currentGame;
+
+    public NoOpPlayer(String id) {
+        this.id = id;
+    }
+
+    @Override
+    public void updateGame(int fromX, int fromY, int toX, int toY, String promotionFigure, boolean gameOver, String message, int sequence) {
+    }
+
+    @Override
+    public void receiveMessage(String message) {
+    }
+
+    @Override
+    public void startGame() {
+    }
+
+    @Override
+    public boolean stillAlive() {
+        return true;
+    }
+
+    @Override
+    public String getId() {
+        return id;
+    }
+
+    @Override
+    public void setCurrentGame(ChessGame game) {
+        this.currentGame = game;
+    }
+
+    @Override
+    public ChessGame currentGame() {
+        return currentGame;
+    }
+}
@@ -1,24 +1,79 @@
 package org.example;
 
+import org.example.RPC.RpcTrace;
+import org.example.exceptions.JsonException;
+import org.example.game.BoardTemplate;
+import org.example.proxy.BlockingServer;
 import org.example.proxy.ChessServer;
-import org.example.proxy.ChessServerProxy;
+import org.example.proxy.EventLoopServer;
+import org.example.proxy.Heartbeat;
+import org.example.proxy.Journal;
+import org.example.proxy.QueuedPlayer;
 import org.example.utils.LocalIPv4;
 
 import java.io.IOException;
-import java.net.ServerSocket;
-import java.net.Socket;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
 
 public class Main {
+    private static final int PORT = 9070;
+    //a silent player is probed after the interval and removed from its game if it stays silent for the timeout
+    private static final long HEARTBEAT_INTERVAL_SECONDS = 3;
+    private static final long HEARTBEAT_TIMEOUT_SECONDS = 2;
+
+    //the first argument selects how connections are served: nio (default), virtual or thread,
+    //the second what happens to the pushes of a player that does not keep up: disconnect (default) or drop,
+    //the third how much of the frames is traced: off (default), header or full, the fourth how often frames of a code are traced,
+    //e.g. 0=10,999=0 for one in ten answers and no protocol offers, the fifth the directory of the journal (default journal)
+    //or none to keep the games only in memory
     public static void main(String[] args) throws IOException {
-        ServerSocket serverSocket = new ServerSocket(9070);
+        String mode = args.length > 0 ? args[0] : "nio";
+        QueuedPlayer.Overflow overflow = QueuedPlayer.Overflow.valueOf((args.length > 1 ? args[1] : "disconnect").toUpperCase());
+        if (args.length > 3) {
+            RpcTrace.get().sample(args[3]);
+        }
+        RpcTrace.get().setLevel(RpcTrace.Level.valueOf((args.length > 2 ? args[2] : "off").toUpperCase()));
+        //the starting position is parsed once here instead of by the first game
+        try {
+            BoardTemplate.of(BoardTemplate.INIT);
+        } catch (JsonException e) {
+            System.out.println(e.getMessage());
+            return;
+        }
+        String journalDirectory = args.length > 4 ? args[4] : "journal";
+        ChessServer chessServer;
+        if (journalDirectory.equals("none")) {
+            chessServer = new ChessServer();
+        } else {
+            Journal journal = Journal.open(Path.of(journalDirectory));
+            System.out.println("Restored games: " + journal.getGames().size());
+            //the records appended before the shutdown are still written
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                try {
+                    journal.close();
+                } catch (IOException e) {
+                    System.out.println("Could not close journal: " + e.getMessage());
+                }
+            }));
+            chessServer = new ChessServer(journal);
+        }
+        Heartbeat heartbeat = new Heartbeat(HEARTBEAT_INTERVAL_SECONDS, HEARTBEAT_TIMEOUT_SECONDS, TimeUnit.SECONDS);
         System.out.println("IP: " + LocalIPv4.get());
-        System.out.println("Port: " + serverSocket.getLocalPort());
-        ChessServer chessServer = new ChessServer();
-        while (true) {
-            Socket s = serverSocket.accept();
-            ChessServerProxy serverProxy = new ChessServerProxy(s, chessServer);
-            Thread t = new Thread(serverProxy);
-            t.start();
+        switch (mode) {
+            case "nio" -> {
+                int loops = Math.min(4, Runtime.getRuntime().availableProcessors());
+                EventLoopServer server = new EventLoopServer(PORT, chessServer, loops, overflow, heartbeat);
+                System.out.println("Port: " + server.getPort());
+                server.run();
+            }
+            case "virtual", "thread" -> {
+                BlockingServer server = mode.equals("virtual")
+                        ? BlockingServer.withVirtualThreads(PORT, chessServer, overflow, heartbeat)
+                        : BlockingServer.withPlatformThreads(PORT, chessServer, overflow, heartbeat);
+                System.out.println("Port: " + server.getPort());
+                server.run();
+            }
+            default -> System.out.println("Unknown mode \"" + mode + "\", use nio, virtual or thread");
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,94 @@
+package org.example.RPC;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+//non-blocking counterpart of RpcReader and RpcWriter: frames are the same lines of text or binary frames,
+//but are decoded from and encoded to ByteBuffers
+public class RpcCodec {
+    //bytes of the frame that is not complete yet
+    private byte[] frame = new byte[256];
+    private int length = 0;
+    private boolean binary = false;
+    //length of the binary frame being read, -1 while its prefix is read
+    private int expected = -1;
+    private int prefixShift = 0;
+
+    public void setBinary(boolean binary) {
+        this.binary = binary;
+    }
+
+    //returns the next complete frame of the buffer or null if more bytes are needed,
+    //the bytes of an incomplete frame are kept until the next call
+    public RpcMessage decode(ByteBuffer buffer) throws IOException {
+        return binary ? decodeBinary(buffer) : decodeText(buffer);
+    }
+
+    private RpcMessage decodeText(ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            byte b = buffer.get();
+            if (b == '\n') {
+                //PrintWriter#println ends lines with the line separator of the platform
+                int end = length > 0 && frame[length - 1] == '\r' ? length - 1 : length;
+                String line = new String(frame, 0, end, StandardCharsets.UTF_8);
+                length = 0;
+                try {
+                    RpcMessage msg = new RpcMessage(line);
+                    RpcTrace.get().read(msg);
+                    return msg;
+                } catch (NumberFormatException e) {
+                    throw new IOException(e);
+                }
+            }
+            append(b);
+        }
+        return null;
+    }
+
+    private RpcMessage decodeBinary(ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            byte b = buffer.get();
+            if (expected < 0) {
+                length |= (b & 0x7F) << prefixShift;
+                prefixShift += 7;
+                if ((b & 0x80) == 0) {
+                    expected = RpcBinary.checkLength(length);
+                    length = 0;
+                } else if (prefixShift >= 32) {
+                    throw new IOException("Invalid frame length");
+                }
+                continue;
+            }
+            append(b);
+            if (length == expected) {
+                RpcMessage msg = RpcBinary.decode(frame, 0, length);
+                length = 0;
+                expected = -1;
+                prefixShift = 0;
+                RpcTrace.get().read(msg);
+                return msg;
+            }
+        }
+        return null;
+    }
+
+    private void append(byte b) throws IOException {
+        if (length == frame.length) {
+            if (length == RpcBinary.MAX_FRAME_LENGTH) {
+                throw new IOException("Frame exceeds " + RpcBinary.MAX_FRAME_LENGTH + " bytes");
+            }
+            frame = Arrays.copyOf(frame, Math.min(length * 2, RpcBinary.MAX_FRAME_LENGTH));
+        }
+        frame[length++] = b;
+    }
+
+    public ByteBuffer encode(RpcMessage msg) {
+        RpcTrace.get().write(msg);
+        if (binary) {
+            return ByteBuffer.wrap(RpcBinary.encode(msg));
+        }
+        return ByteBuffer.wrap((msg + "\n").getBytes(StandardCharsets.UTF_8));
+    }
+}
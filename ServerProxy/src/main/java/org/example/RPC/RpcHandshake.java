@@ -0,0 +1,76 @@
+package org.example.RPC;
+
+import java.util.ArrayList;
+import java.util.List;
+
+//one-time negotiation at the start of a connection: the requesting side sends its protocol version and the features
+//it would like to use, the answer holds the version both sides speak and the features both support
+public final class RpcHandshake {
+    public static final int VERSION = 1;
+    //binary frames instead of lines of text, see RpcBinary
+    public static final String BINARY = "binary";
+    //the protocol is not offered again before every request
+    public static final String NO_BANNER = "nobanner";
+    //pushes to the players of the client are sent on channels of the connection instead of a connection each
+    public static final String MUX = "mux";
+    //requests are numbered and carry their player, so more of them can be sent without waiting for the responses
+    public static final String PIPELINE = "pipeline";
+
+    private final int version;
+    private final List<String> features;
+
+    private RpcHandshake(int version, List<String> features) {
+        this.version = version;
+        this.features = features;
+    }
+
+    public static RpcMessage request(int code, String... features) {
+        Object[] args = new Object[features.length + 1];
+        args[0] = VERSION;
+        System.arraycopy(features, 0, args, 1, features.length);
+        return new RpcMessage(code, args);
+    }
+
+    //the features of the request that are supported as well
+    public static RpcHandshake accept(RpcMessage request, String... supported) {
+        List<String> features = new ArrayList<>();
+        for (int i = 1; i < request.getArgCount(); i++) {
+            if (List.of(supported).contains(request.getArg(i))) {
+                features.add(request.getArg(i));
+            }
+        }
+        //channels and request ids only exist in binary frames, the players of pipelined requests are called on channels
+        if (!features.contains(BINARY)) {
+            features.remove(MUX);
+        }
+        if (!features.contains(MUX)) {
+            features.remove(PIPELINE);
+        }
+        return new RpcHandshake(Math.min(VERSION, request.getInt(0)), features);
+    }
+
+    public static RpcHandshake of(RpcMessage answer) {
+        List<String> features = new ArrayList<>();
+        for (int i = 1; i < answer.getArgCount(); i++) {
+            features.add(answer.getArg(i));
+        }
+        return new RpcHandshake(answer.getInt(0), features);
+    }
+
+    public RpcMessage answer() {
+        Object[] args = new Object[features.size() + 1];
+        args[0] = version;
+        for (int i = 0; i < features.size(); i++) {
+            args[i + 1] = features.get(i);
+        }
+        return new RpcMessage(0, args);
+    }
+
+    public int getVersion() {
+        return version;
+    }
+
+    public boolean has(String feature) {
+        return features.contains(feature);
+    }
+}
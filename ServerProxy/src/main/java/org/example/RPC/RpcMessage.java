@@ -2,11 +2,16 @@ package org.example.RPC;
 
 public class RpcMessage {
     private final int code;
-    private final String[] args;
+    //strings or integers, the text format writes both as text
+    private final Object[] args;
+    //0 is the conversation of the connection itself, other channels are multiplexed over it, binary frames only
+    private int channel = 0;
+    //pipelined requests are numbered, the response carries the number of its request, 0 if not pipelined
+    private int requestId = 0;
     public static char ARGS = 0x1E;
     public static char TYPE = 0x1F;
 
-    public RpcMessage(int code, String... s) {
+    public RpcMessage(int code, Object... s) {
         this.code = code;
         this.args = s;
     }
@@ -21,22 +26,69 @@ public class RpcMessage {
         args = parts[1].split(String.valueOf(ARGS));
     }
 
+    public RpcMessage onChannel(int channel) {
+        return copy(channel, requestId);
+    }
+
+    public RpcMessage forRequest(int requestId) {
+        return copy(channel, requestId);
+    }
+
+    private RpcMessage copy(int channel, int requestId) {
+        RpcMessage msg = new RpcMessage(code, args);
+        msg.channel = channel;
+        msg.requestId = requestId;
+        return msg;
+    }
+
+    public int getChannel() {
+        return channel;
+    }
+
+    public int getRequestId() {
+        return requestId;
+    }
+
     public int getCode() {
         return code;
     }
 
     public String getArg(int i) {
+        return String.valueOf(args[i]);
+    }
+
+    //integers decoded from binary frames are used as they are, text is parsed
+    public int getInt(int i) {
+        return args[i] instanceof Integer n ? n : Integer.parseInt((String) args[i]);
+    }
+
+    public int getArgCount() {
+        return args.length;
+    }
+
+    Object getValue(int i) {
         return args[i];
     }
 
     public String getMessage() {
-        return String.join(String.valueOf(','), args);
+        return join(',');
+    }
+
+    private String join(char separator) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < args.length; i++) {
+            if (i > 0) {
+                sb.append(separator);
+            }
+            sb.append(args[i]);
+        }
+        return sb.toString();
     }
 
     @Override
     public String toString() {
         return String.valueOf(code) +
                 TYPE +
-                String.join(String.valueOf(ARGS), args);
+                join(ARGS);
     }
 }
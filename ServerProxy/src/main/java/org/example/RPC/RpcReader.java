@@ -1,26 +1,70 @@
 package org.example.RPC;
 
-import java.io.BufferedReader;
+import java.io.BufferedInputStream;
+import java.io.EOFException;
 import java.io.IOException;
-import java.io.Reader;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
 
-public class RpcReader extends BufferedReader {
-    public RpcReader(Reader in) {
-        super(in);
+//reads lines of text or, once switched, binary frames from the same buffered stream,
+//a plain BufferedInputStream locks with a j.u.c. lock and does not pin the carrier of a virtual thread
+public class RpcReader {
+    private final InputStream in;
+    private byte[] frame = new byte[256];
+    private boolean binary = false;
+
+    public RpcReader(InputStream in) {
+        this.in = new BufferedInputStream(in);
+    }
+
+    public void setBinary(boolean binary) {
+        this.binary = binary;
     }
 
     public RpcMessage readRpcMessage() throws IOException {
+        if (binary) {
+            int length = RpcBinary.readLength(in);
+            ensureCapacity(length);
+            if (in.readNBytes(frame, 0, length) < length) {
+                throw new EOFException("Connection closed");
+            }
+            RpcMessage msg = RpcBinary.decode(frame, 0, length);
+            RpcTrace.get().read(msg);
+            return msg;
+        }
         try {
-            String msg = super.readLine();
-            System.out.println(Thread.currentThread().threadId() + ": Reading: " + msg);
-            return new RpcMessage(msg);
+            RpcMessage msg = new RpcMessage(readLine());
+            RpcTrace.get().read(msg);
+            return msg;
         } catch (NumberFormatException e) {
             throw new IOException(e);
         }
     }
 
-    @Override
-    public String readLine() {
-        throw new RuntimeException("RpcReader#readLine Not implemented");
+    private String readLine() throws IOException {
+        int length = 0;
+        int b;
+        while ((b = in.read()) != '\n') {
+            if (b < 0) {
+                throw new EOFException("Connection closed");
+            }
+            if (length == RpcBinary.MAX_FRAME_LENGTH) {
+                throw new IOException("Line exceeds " + RpcBinary.MAX_FRAME_LENGTH + " bytes");
+            }
+            ensureCapacity(length + 1);
+            frame[length++] = (byte) b;
+        }
+        //PrintWriter#println ends lines with the line separator of the platform
+        if (length > 0 && frame[length - 1] == '\r') {
+            length--;
+        }
+        return new String(frame, 0, length, StandardCharsets.UTF_8);
+    }
+
+    private void ensureCapacity(int length) {
+        if (length > frame.length) {
+            frame = Arrays.copyOf(frame, Math.max(length, frame.length * 2));
+        }
     }
 }
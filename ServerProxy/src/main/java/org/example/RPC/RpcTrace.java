@@ -0,0 +1,218 @@
+package org.example.RPC;
+
+import java.io.PrintStream;
+import java.util.Arrays;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+//traces the frames of all connections without making them wait for the console: the reading and writing threads
+//claim a slot of a ring buffer and leave the message there, one daemon thread formats and prints the slots in order;
+//a full ring drops the frame and counts it instead of blocking the connection
+public class RpcTrace implements AutoCloseable {
+    public enum Level {
+        //nothing is traced, a frame costs one read of the level
+        OFF,
+        //direction, channel, request id, code and number of arguments
+        HEADER,
+        //the arguments as well, boards included
+        FULL
+    }
+
+    public static final int CAPACITY = 8192;
+    //codes above are sampled like the last one
+    private static final int CODES = 1024;
+    private static final long IDLE_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+
+    private static final RpcTrace TRACE = new RpcTrace(CAPACITY, System.out, "rpc-trace");
+
+    private final PrintStream out;
+    private final String name;
+    private final int mask;
+    //the slot at i holds the frame of position sequence - 1 once written and is free for position sequence
+    private final AtomicLongArray sequences;
+    private final RpcMessage[] messages;
+    private final long[] times;
+    private final long[] threads;
+    private final boolean[] reads;
+    private final AtomicLong tail = new AtomicLong();
+    //only moved by the printing thread
+    private long head = 0;
+    private final LongAdder dropped = new LongAdder();
+    //1 traces every frame of the code, n one in n on average, 0 none
+    private final int[] sampling = new int[CODES];
+    private final long start = System.nanoTime();
+    private volatile Level level = Level.OFF;
+    private volatile boolean running = true;
+    private Thread thread;
+
+    public RpcTrace(int capacity, PrintStream out, String name) {
+        if (capacity <= 0 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("Capacity must be a power of two");
+        }
+        this.out = out;
+        this.name = name;
+        this.mask = capacity - 1;
+        this.sequences = new AtomicLongArray(capacity);
+        for (int i = 0; i < capacity; i++) {
+            sequences.set(i, i);
+        }
+        this.messages = new RpcMessage[capacity];
+        this.times = new long[capacity];
+        this.threads = new long[capacity];
+        this.reads = new boolean[capacity];
+        Arrays.fill(sampling, 1);
+    }
+
+    //the trace of the readers, writers and codecs of the server
+    public static RpcTrace get() {
+        return TRACE;
+    }
+
+    //the printing thread only runs once something is traced
+    public synchronized void setLevel(Level level) {
+        this.level = level;
+        if (level != Level.OFF && thread == null && running) {
+            thread = new Thread(this::run, name);
+            thread.setDaemon(true);
+            thread.start();
+        }
+    }
+
+    public Level getLevel() {
+        return level;
+    }
+
+    //traces one in every frames with the code on average, 0 stops tracing the code
+    public void sample(int code, int every) {
+        if (every < 0) {
+            throw new IllegalArgumentException("Sampling must not be negative");
+        }
+        sampling[index(code)] = every;
+    }
+
+    //codes and how often to trace them, e.g. "0=100,999=0" traces one in 100 answers and no protocol offers
+    public void sample(String samples) {
+        for (String sample : samples.split(",")) {
+            String[] parts = sample.split("=");
+            sample(Integer.parseInt(parts[0].trim()), Integer.parseInt(parts[1].trim()));
+        }
+    }
+
+    public void read(RpcMessage msg) {
+        if (level != Level.OFF) {
+            trace(msg, true);
+        }
+    }
+
+    public void write(RpcMessage msg) {
+        if (level != Level.OFF) {
+            trace(msg, false);
+        }
+    }
+
+    public long getDropped() {
+        return dropped.sum();
+    }
+
+    private void trace(RpcMessage msg, boolean read) {
+        int every = sampling[index(msg.getCode())];
+        if (every == 0 || every > 1 && ThreadLocalRandom.current().nextInt(every) != 0) {
+            return;
+        }
+        long position = tail.get();
+        int slot;
+        while (true) {
+            slot = (int) (position & mask);
+            long sequence = sequences.getAcquire(slot);
+            if (sequence == position) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    break;
+                }
+                position = tail.get();
+            } else if (sequence < position) {
+                //the slot still holds a frame of the last round
+                dropped.increment();
+                return;
+            } else {
+                position = tail.get();
+            }
+        }
+        messages[slot] = msg;
+        times[slot] = System.nanoTime();
+        threads[slot] = Thread.currentThread().threadId();
+        reads[slot] = read;
+        sequences.setRelease(slot, position + 1);
+    }
+
+    private void run() {
+        StringBuilder sb = new StringBuilder();
+        long reported = 0;
+        boolean closing = false;
+        while (true) {
+            //the frames written before close are still printed
+            closing = closing || !running;
+            sb.setLength(0);
+            int slot;
+            while (sequences.getAcquire(slot = (int) (head & mask)) == head + 1) {
+                format(sb, slot);
+                messages[slot] = null;
+                sequences.setRelease(slot, head + mask + 1);
+                head++;
+            }
+            long lost = dropped.sum();
+            if (lost > reported) {
+                sb.append(lost - reported).append(" frames not traced, the trace fell behind").append(System.lineSeparator());
+                reported = lost;
+            }
+            if (!sb.isEmpty()) {
+                out.print(sb);
+                out.flush();
+            } else if (closing) {
+                return;
+            } else {
+                LockSupport.parkNanos(this, IDLE_NANOS);
+            }
+        }
+    }
+
+    private void format(StringBuilder sb, int slot) {
+        RpcMessage msg = messages[slot];
+        sb.append(TimeUnit.NANOSECONDS.toMicros(times[slot] - start)).append("us ")
+                .append(threads[slot]).append(reads[slot] ? ": Reading: " : ": Writing: ")
+                .append("channel ").append(msg.getChannel())
+                .append(" request ").append(msg.getRequestId())
+                .append(" code ").append(msg.getCode());
+        if (level == Level.FULL) {
+            sb.append(' ').append(msg.getMessage());
+        } else {
+            sb.append(" args ").append(msg.getArgCount());
+        }
+        sb.append(System.lineSeparator());
+    }
+
+    private static int index(int code) {
+        return Math.min(Math.max(code, 0), CODES - 1);
+    }
+
+    //prints what has been traced and stops the printing thread, an interrupted caller stops waiting for it
+    @Override
+    public void close() {
+        Thread printer;
+        synchronized (this) {
+            running = false;
+            printer = thread;
+        }
+        if (printer != null) {
+            LockSupport.unpark(printer);
+            try {
+                printer.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package org.example.game;
+
+import org.example.game.figure.FigureFactory;
+
+//squares attacked by every figure and by each color, stored as bitboards and
+//updated incrementally from the squares the Position reports as touched
+public class AttackMap {
+    private final long[] attacksFrom = new long[64];
+    private final long[] attacked = new long[2];
+
+    public void recalculate(Position position) {
+        position.clearTouched();
+        for (int square = 0; square < 64; square++) {
+            attacksFrom[square] = attacksOf(position, square);
+        }
+        recalculateColors(position);
+    }
+
+    public void copyFrom(AttackMap other) {
+        System.arraycopy(other.attacksFrom, 0, attacksFrom, 0, attacksFrom.length);
+        System.arraycopy(other.attacked, 0, attacked, 0, attacked.length);
+    }
+
+    //only the touched squares and the sliding figures whose rays cross them are recalculated
+    public void update(Position position) {
+        long touched = position.clearTouched();
+        if (touched == 0) {
+            return;
+        }
+        for (long squares = touched; squares != 0; squares &= squares - 1) {
+            int square = Long.numberOfTrailingZeros(squares);
+            attacksFrom[square] = attacksOf(position, square);
+        }
+        long sliders = (position.getPieces(Position.BISHOP)
+                | position.getPieces(Position.ROOK)
+                | position.getPieces(Position.QUEEN)) & ~touched;
+        for (; sliders != 0; sliders &= sliders - 1) {
+            int square = Long.numberOfTrailingZeros(sliders);
+            if ((attacksFrom[square] & touched) != 0) {
+                attacksFrom[square] = attacksOf(position, square);
+            }
+        }
+        recalculateColors(position);
+    }
+
+    private void recalculateColors(Position position) {
+        for (Color color : Color.values()) {
+            long attacks = 0;
+            for (long pieces = position.getPieces(color); pieces != 0; pieces &= pieces - 1) {
+                attacks |= attacksFrom[Long.numberOfTrailingZeros(pieces)];
+            }
+            attacked[color.ordinal()] = attacks;
+        }
+    }
+
+    private static long attacksOf(Position position, int square) {
+        int piece = position.getPiece(square);
+        return piece == Position.EMPTY ? 0 : FigureFactory.getFigure(piece).getAttacks(position, square);
+    }
+
+    public long getAttacked(Color color) {
+        return attacked[color.ordinal()];
+    }
+
+    public long getAttacksFrom(int square) {
+        return attacksFrom[square];
+    }
+
+    public boolean isAttacked(int square, Color by) {
+        return (attacked[by.ordinal()] & 1L << square) != 0;
+    }
+}
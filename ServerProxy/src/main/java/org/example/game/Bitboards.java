@@ -0,0 +1,200 @@
+package org.example.game;
+
+import java.util.SplittableRandom;
+
+//bitboard helpers shared by the move generation, squares are indexed like in the Position
+public class Bitboards {
+    public static final long ALL = ~0L;
+
+    private static final int[][] ROOK_DIRECTIONS = {{1, 0}, {-1, 0}, {0, 1}, {0, -1}};
+    private static final int[][] BISHOP_DIRECTIONS = {{1, 1}, {1, -1}, {-1, 1}, {-1, -1}};
+
+    //fields strictly between two squares on a common rank, file or diagonal
+    private static final long[][] BETWEEN = new long[64][64];
+    //all fields of the rank, file or diagonal through two squares
+    private static final long[][] LINE = new long[64][64];
+
+    private static final long[] KNIGHT = new long[64];
+    private static final long[] KING = new long[64];
+    //pawn attacks indexed by color ordinal
+    private static final long[][] PAWN = new long[2][64];
+
+    //magic bitboards: the occupied fields within the mask of a square are multiplied by its magic,
+    //the top bits of the product index the precomputed attacks of that square
+    private static final long[] ROOK_MASKS = new long[64];
+    private static final long[] ROOK_MAGICS = new long[64];
+    private static final int[] ROOK_SHIFTS = new int[64];
+    private static final int[] ROOK_OFFSETS = new int[64];
+    private static final long[] ROOK_ATTACKS = new long[102400];
+    private static final long[] BISHOP_MASKS = new long[64];
+    private static final long[] BISHOP_MAGICS = new long[64];
+    private static final int[] BISHOP_SHIFTS = new int[64];
+    private static final int[] BISHOP_OFFSETS = new int[64];
+    private static final long[] BISHOP_ATTACKS = new long[5248];
+
+    static {
+        for (int from = 0; from < 64; from++) {
+            for (int[] direction : ROOK_DIRECTIONS) {
+                initLines(from, direction[0], direction[1]);
+            }
+            for (int[] direction : BISHOP_DIRECTIONS) {
+                initLines(from, direction[0], direction[1]);
+            }
+            int[][] jumps = {{2, 1}, {2, -1}, {1, 2}, {1, -2}, {-2, 1}, {-2, -1}, {-1, 2}, {-1, -2}};
+            for (int[] jump : jumps) {
+                KNIGHT[from] |= step(from, jump[0], jump[1]);
+            }
+            for (int dx = -1; dx <= 1; dx++) {
+                for (int dy = -1; dy <= 1; dy++) {
+                    if (dx != 0 || dy != 0) {
+                        KING[from] |= step(from, dx, dy);
+                    }
+                }
+            }
+            PAWN[Color.WHITE.ordinal()][from] = step(from, 1, -1) | step(from, -1, -1);
+            PAWN[Color.BLACK.ordinal()][from] = step(from, 1, 1) | step(from, -1, 1);
+        }
+        //fixed seed so every start finds the same magics
+        SplittableRandom random = new SplittableRandom(0x3A61C5L);
+        initMagics(ROOK_DIRECTIONS, ROOK_MASKS, ROOK_MAGICS, ROOK_SHIFTS, ROOK_OFFSETS, ROOK_ATTACKS, random);
+        initMagics(BISHOP_DIRECTIONS, BISHOP_MASKS, BISHOP_MAGICS, BISHOP_SHIFTS, BISHOP_OFFSETS, BISHOP_ATTACKS, random);
+    }
+
+    private static void initMagics(int[][] directions, long[] masks, long[] magics, int[] shifts, int[] offsets,
+                                   long[] table, SplittableRandom random) {
+        int offset = 0;
+        long[] occupancies = new long[4096];
+        long[] attacks = new long[4096];
+        int[] epochs = new int[4096];
+        int epoch = 0;
+        for (int square = 0; square < 64; square++) {
+            //the outermost field of a ray does not matter, it is attacked whether occupied or not
+            long mask = 0;
+            for (int[] direction : directions) {
+                mask |= ray(square, 0, direction[0], direction[1]) & ~step(lastOfRay(square, direction), 0, 0);
+            }
+            int bits = Long.bitCount(mask);
+            int size = 0;
+            long subset = 0;
+            do {
+                occupancies[size] = subset;
+                attacks[size++] = slidingAttacks(directions, square, subset);
+                subset = subset - mask & mask;
+            } while (subset != 0);
+
+            masks[square] = mask;
+            shifts[square] = 64 - bits;
+            offsets[square] = offset;
+            boolean found = false;
+            while (!found) {
+                long magic = random.nextLong() & random.nextLong() & random.nextLong();
+                if (Long.bitCount(mask * magic >>> 56) < 6) {
+                    continue;
+                }
+                epoch++;
+                found = true;
+                for (int i = 0; i < size && found; i++) {
+                    int index = (int) (occupancies[i] * magic >>> shifts[square]);
+                    if (epochs[index] < epoch) {
+                        epochs[index] = epoch;
+                        table[offset + index] = attacks[i];
+                    } else if (table[offset + index] != attacks[i]) {
+                        found = false;
+                    }
+                }
+                magics[square] = magic;
+            }
+            offset += size;
+        }
+    }
+
+    private static int lastOfRay(int square, int[] direction) {
+        int x = Position.getX(square);
+        int y = Position.getY(square);
+        while (x + direction[0] >= 0 && x + direction[0] < 8 && y + direction[1] >= 0 && y + direction[1] < 8) {
+            x += direction[0];
+            y += direction[1];
+        }
+        return Position.square(x, y);
+    }
+
+    private static long slidingAttacks(int[][] directions, int square, long occupied) {
+        long attacks = 0;
+        for (int[] direction : directions) {
+            attacks |= ray(square, occupied, direction[0], direction[1]);
+        }
+        return attacks;
+    }
+
+    private static long step(int square, int dx, int dy) {
+        int x = Position.getX(square) + dx;
+        int y = Position.getY(square) + dy;
+        return x < 0 || x > 7 || y < 0 || y > 7 ? 0 : 1L << Position.square(x, y);
+    }
+
+    private static void initLines(int from, int dx, int dy) {
+        long full = ray(from, 0, dx, dy) | ray(from, 0, -dx, -dy) | 1L << from;
+        long between = 0;
+        int x = Position.getX(from) + dx;
+        int y = Position.getY(from) + dy;
+        for (; x >= 0 && x < 8 && y >= 0 && y < 8; x += dx, y += dy) {
+            int to = Position.square(x, y);
+            BETWEEN[from][to] = between;
+            LINE[from][to] = full;
+            between |= 1L << to;
+        }
+    }
+
+    public static long bit(int square) {
+        return 1L << square;
+    }
+
+    public static long between(int from, int to) {
+        return BETWEEN[from][to];
+    }
+
+    public static long line(int from, int to) {
+        return LINE[from][to];
+    }
+
+    public static long rookAttacks(int square, long occupied) {
+        return ROOK_ATTACKS[ROOK_OFFSETS[square]
+                + (int) ((occupied & ROOK_MASKS[square]) * ROOK_MAGICS[square] >>> ROOK_SHIFTS[square])];
+    }
+
+    public static long bishopAttacks(int square, long occupied) {
+        return BISHOP_ATTACKS[BISHOP_OFFSETS[square]
+                + (int) ((occupied & BISHOP_MASKS[square]) * BISHOP_MAGICS[square] >>> BISHOP_SHIFTS[square])];
+    }
+
+    public static long queenAttacks(int square, long occupied) {
+        return rookAttacks(square, occupied) | bishopAttacks(square, occupied);
+    }
+
+    public static long knightAttacks(int square) {
+        return KNIGHT[square];
+    }
+
+    public static long kingAttacks(int square) {
+        return KING[square];
+    }
+
+    public static long pawnAttacks(Color color, int square) {
+        return PAWN[color.ordinal()][square];
+    }
+
+    //fields along a ray up to and including the first occupied field
+    private static long ray(int square, long occupied, int dx, int dy) {
+        long attacks = 0;
+        int x = Position.getX(square) + dx;
+        int y = Position.getY(square) + dy;
+        for (; x >= 0 && x < 8 && y >= 0 && y < 8; x += dx, y += dy) {
+            long bit = 1L << Position.square(x, y);
+            attacks |= bit;
+            if ((occupied & bit) != 0) {
+                break;
+            }
+        }
+        return attacks;
+    }
+}
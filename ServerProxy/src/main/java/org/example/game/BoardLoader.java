@@ -3,14 +3,9 @@ package org.example.game;
 import com.google.gson.JsonArray;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
-import com.google.gson.JsonParser;
 import org.example.exceptions.JsonException;
-import org.example.game.figure.Figure;
 import org.example.game.figure.FigureFactory;
 
-import java.io.InputStream;
-import java.io.InputStreamReader;
-
 public class BoardLoader {
     private final FigureFactory figureFactory;
 
@@ -19,17 +14,22 @@ public class BoardLoader {
     }
 
     public void loadNewBoard(ChessBoard board) throws JsonException {
-        try {
-            ClassLoader classloader = Thread.currentThread().getContextClassLoader();
-            InputStream is = classloader.getResourceAsStream("init.json");
-            assert is != null;
-            InputStreamReader isr = new InputStreamReader(is);
-            JsonObject boardStanding = JsonParser.parseReader(isr).getAsJsonObject();
+        loadBoard(board, BoardTemplate.INIT);
+    }
 
+    //loads a board in the format of getCurrentBoard() from a resource on the classpath, the resource is only parsed
+    //once and every later board is copied from its template
+    public void loadBoard(ChessBoard board, String resource) throws JsonException {
+        board.setup(BoardTemplate.of(resource));
+    }
+
+    public void loadBoard(ChessBoard board, JsonObject boardStanding) throws JsonException {
+        try {
             loadFigures(Color.BLACK, boardStanding.getAsJsonArray("black"), board);
             loadFigures(Color.WHITE, boardStanding.getAsJsonArray("white"), board);
             board.setCurrenTurn(boardStanding.get("current_turn").getAsInt());
             board.set50MoveRuleTurns(boardStanding.get("50_move_rule_turns").getAsInt());
+            board.setupFinished();
         } catch (Exception e) {
             throw new JsonException("Could not load board: " + e.getMessage());
         }
@@ -40,8 +40,7 @@ public class BoardLoader {
             String type = jsonFigure.getAsJsonObject().get("type").getAsString();
             String pos = jsonFigure.getAsJsonObject().get("pos").getAsString();
             int firstTurn = jsonFigure.getAsJsonObject().get("first_turn").getAsInt();
-            Figure figure = figureFactory.createFigure(color, type, pos, firstTurn);
-            board.setFigure(figure);
+            figureFactory.createFigure(color, type, pos, firstTurn);
         }
     }
 
@@ -51,12 +50,17 @@ public class BoardLoader {
         main.addProperty("50_move_rule_turns", board.get50MoveRuleTurns());
         JsonArray black = new JsonArray();
         JsonArray white = new JsonArray();
-        for (Figure figure : board.getFigures()) {
+        Position position = board.getPosition();
+        for (int square = 0; square < 64; square++) {
+            int piece = position.getPiece(square);
+            if (piece == Position.EMPTY) {
+                continue;
+            }
             JsonObject jsonFigure = new JsonObject();
-            jsonFigure.addProperty("type", figure.getName());
-            jsonFigure.addProperty("pos", figure.getPos());
-            jsonFigure.addProperty("first_turn", figure.getFirstTurn());
-            if (figure.getColor() == Color.BLACK) {
+            jsonFigure.addProperty("type", FigureFactory.getFigure(piece).getName());
+            jsonFigure.addProperty("pos", ChessField.of(square).getPos());
+            jsonFigure.addProperty("first_turn", position.getFirstTurn(square));
+            if (Position.colorOf(piece) == Color.BLACK) {
                 black.add(jsonFigure);
             } else {
                 white.add(jsonFigure);
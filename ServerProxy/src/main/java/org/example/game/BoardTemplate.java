@@ -0,0 +1,62 @@
+package org.example.game;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import org.example.exceptions.JsonException;
+import org.example.game.figure.FigureFactory;
+
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+//a board position parsed once from a resource on the classpath, e.g. the starting position of every game. The
+//template is never changed after it was set up, boards are set up from it by copying its arrays
+public final class BoardTemplate {
+    public static final String INIT = "init.json";
+
+    private static final Map<String, BoardTemplate> TEMPLATES = new ConcurrentHashMap<>();
+
+    private final Position position = new Position();
+    private final AttackMap attackMap = new AttackMap();
+
+    private BoardTemplate(ChessBoard board) {
+        position.copyFrom(board.getPosition());
+        attackMap.recalculate(position);
+    }
+
+    //the template of the resource, which is only read the first time it is asked for
+    public static BoardTemplate of(String resource) throws JsonException {
+        BoardTemplate template = TEMPLATES.get(resource);
+        if (template == null) {
+            template = parse(resource);
+            BoardTemplate previous = TEMPLATES.putIfAbsent(resource, template);
+            if (previous != null) {
+                template = previous;
+            }
+        }
+        return template;
+    }
+
+    private static BoardTemplate parse(String resource) throws JsonException {
+        JsonObject boardStanding;
+        try {
+            ClassLoader classloader = Thread.currentThread().getContextClassLoader();
+            InputStream is = classloader.getResourceAsStream(resource);
+            assert is != null;
+            try (InputStreamReader isr = new InputStreamReader(is)) {
+                boardStanding = JsonParser.parseReader(isr).getAsJsonObject();
+            }
+        } catch (Exception e) {
+            throw new JsonException("Could not load board: " + e.getMessage());
+        }
+        ChessBoard board = new ChessBoard();
+        new BoardLoader(new FigureFactory(board)).loadBoard(board, boardStanding);
+        return new BoardTemplate(board);
+    }
+
+    void copyTo(Position position, AttackMap attackMap) {
+        position.copyFrom(this.position);
+        attackMap.copyFrom(this.attackMap);
+    }
+}
@@ -1,98 +1,269 @@
 package org.example.game;
 
 import org.example.game.figure.Figure;
+import org.example.game.figure.FigureFactory;
 import org.example.game.figure.King;
 
 import java.util.*;
 
 public class ChessBoard {
-    private final ChessField[] fields = new ChessField[64];
-    private final Map<Color, Set<ChessField>> attackedFields = new HashMap<>();
-    private int currentTurn = 1;
-    private int ruleOf50 = 0;
+    private final Position position = new Position();
+    private final AttackMap attackMap = new AttackMap();
+    private final MoveGenerator moveGenerator = new MoveGenerator(position);
+    //legal moves and game state of positions shared between boards, may be null
+    private final PositionCache positionCache;
+    //cache entry of the current position, null until the game state was tested
+    private PositionCache.Entry cached;
+
+    //from, to, piece, captured piece, captured square, captured first turn, first turn,
+    //castling rights, en passant square, 50 move rule turns and the first turn of a castling rook
+    private static final int UNDO_SIZE = 11;
+    private int[] undoStack = new int[256 * UNDO_SIZE];
+    //zobrist keys of the positions before each move on the undo stack
+    private long[] keyHistory = new long[256];
+    private int undoSize = 0;
 
     private String currentMessage = "";
     private boolean gameOver = false;
 
-
     public ChessBoard() {
-        resetAttackedFields();
-        for (int i = 0; i < 64; i++) {
-            int x = getX(i);
-            int y = getY(i);
-            ChessField field = new ChessField(this, x, y);
-            fields[i] = field;
-        }
+        this(null);
+    }
+
+    public ChessBoard(PositionCache positionCache) {
+        this.positionCache = positionCache;
+    }
+
+    public Position getPosition() {
+        return position;
+    }
+
+    public ChessField getField(int x, int y) {
+        return ChessField.of(x, y);
+    }
+
+    public Figure getFigure(ChessField field) {
+        return getFigure(field.getSquare());
+    }
+
+    public Figure getFigure(int square) {
+        int piece = position.getPiece(square);
+        return piece == Position.EMPTY ? null : FigureFactory.getFigure(piece);
+    }
+
+    public void setFigure(Figure figure, ChessField field, int firstTurn) {
+        position.put(field.getSquare(), figure.getPiece(), firstTurn);
+        invalidate();
+    }
+
+    //has to be called once all figures have been placed
+    public void setupFinished() {
+        position.deriveState();
         recalculateAttackedFields();
+        if (positionCache != null) {
+            getState();
+        }
+    }
+
+    //replaces the board with the position of the template, which has been set up already
+    public void setup(BoardTemplate template) {
+        template.copyTo(position, attackMap);
+        undoSize = 0;
+        currentMessage = "";
+        gameOver = false;
+        invalidate();
+        if (positionCache != null) {
+            getState();
+        }
     }
 
-    private void resetAttackedFields() {
-        attackedFields.put(Color.BLACK, new HashSet<>());
-        attackedFields.put(Color.WHITE, new HashSet<>());
+    //plays a move of the game and evaluates the new game state
+    public void move(int move) {
+        makeMove(move);
+        gameStateTest();
     }
 
-    private int getX(int index) {
-        return index % 8;
+    //returns the encoded legal move of the player on turn or Move.NONE if there is none,
+    //promotion is the figure type a pawn is promoted to or Position.EMPTY
+    public int getMove(int from, int to, int promotion) {
+        int piece = position.getPiece(from);
+        if (piece == Position.EMPTY || (getLegalMoves(from) & 1L << to) == 0) {
+            return Move.NONE;
+        }
+        boolean isPromotion = Position.typeOf(piece) == Position.PAWN && (Position.getY(to) == 0 || Position.getY(to) == 7);
+        if (isPromotion != (promotion >= Position.KNIGHT && promotion <= Position.QUEEN)) {
+            return Move.NONE;
+        }
+        return encode(from, to, promotion);
     }
 
-    private int getY(int index) {
-        return (index - getX(index)) / 8;
+    //fills the list with all legal moves of the player on turn, promotions are listed once per figure type
+    public void generateMoves(MoveList moves) {
+        moves.clear();
+        Color turn = getTurn();
+        int[] squares = position.getPieceList(turn);
+        for (int i = position.getPieceCount(turn) - 1; i >= 0; i--) {
+            int from = squares[i];
+            boolean pawn = Position.typeOf(position.getPiece(from)) == Position.PAWN;
+            for (long targets = getLegalMoves(from); targets != 0; targets &= targets - 1) {
+                int to = Long.numberOfTrailingZeros(targets);
+                if (pawn && (Position.getY(to) == 0 || Position.getY(to) == 7)) {
+                    for (int type = Position.QUEEN; type >= Position.KNIGHT; type--) {
+                        moves.add(encode(from, to, type));
+                    }
+                } else {
+                    moves.add(encode(from, to, Position.EMPTY));
+                }
+            }
+        }
     }
 
-    public ChessField getField(int x, int y) {
-        return x < 0 || x > 7 || y < 0 || y > 7 ? null : fields[y * 8 + x];
+    private int encode(int from, int to, int promotion) {
+        int type = Position.typeOf(position.getPiece(from));
+        int flags = position.isEmpty(to) ? 0 : Move.CAPTURE;
+        if (type == Position.PAWN) {
+            if (to == position.getEnPassantSquare()) {
+                flags |= Move.CAPTURE | Move.EN_PASSANT;
+            } else if (Math.abs(to - from) == 16) {
+                flags |= Move.DOUBLE_PUSH;
+            }
+        } else if (type == Position.KING && Math.abs(to - from) == 2) {
+            flags |= Move.CASTLING;
+        }
+        return Move.of(from, to, promotion, flags);
+    }
+
+    public void makeMove(int move) {
+        makeMove(Move.from(move), Move.to(move), Move.promotion(move));
     }
 
-    public void setFigure(Figure figure) {
-        getField(figure.getX(), figure.getY()).setFigure(figure);
+    //executes the move including castling, en passant and promotion and pushes everything
+    //needed to take it back with unmakeMove() onto the undo stack
+    public void makeMove(int from, int to, int promotion) {
+        int piece = position.getPiece(from);
+        int type = Position.typeOf(piece);
+        Color color = Position.colorOf(piece);
+        int capturedSquare = to;
+        if (type == Position.PAWN && to == position.getEnPassantSquare()) {
+            capturedSquare = color == Color.WHITE ? to + 8 : to - 8;
+        }
+        if (undoSize == keyHistory.length) {
+            undoStack = Arrays.copyOf(undoStack, undoStack.length * 2);
+            keyHistory = Arrays.copyOf(keyHistory, keyHistory.length * 2);
+        }
+        keyHistory[undoSize] = position.getKey();
+        int i = undoSize++ * UNDO_SIZE;
+        undoStack[i] = from;
+        undoStack[i + 1] = to;
+        undoStack[i + 2] = piece;
+        undoStack[i + 3] = position.getPiece(capturedSquare);
+        undoStack[i + 4] = capturedSquare;
+        undoStack[i + 5] = position.getFirstTurn(capturedSquare);
+        undoStack[i + 6] = position.getFirstTurn(from);
+        undoStack[i + 7] = position.getCastlingRights();
+        undoStack[i + 8] = position.getEnPassantSquare();
+        undoStack[i + 9] = position.getRuleOf50();
+
+        int currentTurn = position.getCurrentTurn();
+        int captured = position.remove(capturedSquare);
+        position.move(from, to);
+        if (position.getFirstTurn(to) < 0) {
+            position.setFirstTurn(to, currentTurn);
+        }
+        if (promotion != Position.EMPTY) {
+            position.put(to, Position.piece(promotion, color), -1);
+        }
+        if (type == Position.KING && Math.abs(to - from) == 2) {
+            //castling moves the rook as well
+            int rookFrom = to > from ? to + 1 : to - 2;
+            int rookTo = to > from ? to - 1 : to + 1;
+            undoStack[i + 10] = position.getFirstTurn(rookFrom);
+            position.move(rookFrom, rookTo);
+            position.setFirstTurn(rookTo, currentTurn);
+        }
+        position.clearCastlingRights(from);
+        position.clearCastlingRights(to);
+        position.setEnPassantSquare(type == Position.PAWN && Math.abs(to - from) == 16
+                ? (from + to) / 2
+                : Position.NO_SQUARE);
+        position.setRuleOf50(captured != Position.EMPTY || type == Position.PAWN ? 0 : position.getRuleOf50() + 1);
+        position.setCurrentTurn(currentTurn + 1);
+        attackMap.update(position);
+        invalidate();
+    }
+
+    //takes back the last move done with makeMove()
+    public void unmakeMove() {
+        int i = --undoSize * UNDO_SIZE;
+        int from = undoStack[i];
+        int to = undoStack[i + 1];
+        int piece = undoStack[i + 2];
+        int captured = undoStack[i + 3];
+
+        if (Position.typeOf(piece) == Position.KING && Math.abs(to - from) == 2) {
+            int rookFrom = to > from ? to + 1 : to - 2;
+            int rookTo = to > from ? to - 1 : to + 1;
+            position.move(rookTo, rookFrom);
+            position.setFirstTurn(rookFrom, undoStack[i + 10]);
+        }
+        position.remove(to);
+        position.put(from, piece, undoStack[i + 6]);
+        if (captured != Position.EMPTY) {
+            position.put(undoStack[i + 4], captured, undoStack[i + 5]);
+        }
+        position.setCastlingRights(undoStack[i + 7]);
+        position.setEnPassantSquare(undoStack[i + 8]);
+        position.setRuleOf50(undoStack[i + 9]);
+        position.setCurrentTurn(position.getCurrentTurn() - 1);
+        attackMap.update(position);
+        invalidate();
     }
 
     public int getCurrentTurn() {
-        return currentTurn;
+        return position.getCurrentTurn();
     }
 
     public void setCurrenTurn(int currentTurn) {
-        this.currentTurn = currentTurn;
+        position.setCurrentTurn(currentTurn);
+        invalidate();
     }
 
     public int get50MoveRuleTurns() {
-        return ruleOf50;
+        return position.getRuleOf50();
     }
 
     public void set50MoveRuleTurns(int turns) {
-        this.ruleOf50 = turns;
-    }
-
-    public void nextTurn() {
-        currentTurn++;
-        ruleOf50++;
-        recalculateAttackedFields();
-        gameStateTest();
+        position.setRuleOf50(turns);
     }
 
     public Color getTurn() {
-        return currentTurn % 2 == 0 ? Color.BLACK : Color.WHITE;
+        return position.getTurn();
     }
 
     void gameStateTest() {
-        King king = getKing(getTurn());
-        if (king != null) {
-            if (king.isCheck()) {
-                if (king.isCheckMate()) {
-                    currentMessage = "Check mate! " + king.getColor().revert().getFancyName() + " wins.";
-                    gameOver = true;
-                    return;
-                }
-                currentMessage = "Check! " + king.getColor().getFancyName() + " has to defend.";
+        Color turn = getTurn();
+        switch (getState()) {
+            case PositionCache.CHECK_MATE -> {
+                currentMessage = "Check mate! " + turn.revert().getFancyName() + " wins.";
+                gameOver = true;
                 return;
             }
-            if (king.isStaleMate()) {
-                currentMessage = "Stalemate! " + king.getColor().getFancyName() + " can't move.";
+            case PositionCache.CHECK -> {
+                currentMessage = "Check! " + turn.getFancyName() + " has to defend.";
+                return;
+            }
+            case PositionCache.STALE_MATE -> {
+                currentMessage = "Stalemate! " + turn.getFancyName() + " can't move.";
                 gameOver = true;
                 return;
             }
         }
-        if (ruleOf50 >= 100) {
+        if (isThreefoldRepetition()) {
+            currentMessage = "Threefold-repetition applies";
+            gameOver = true;
+            return;
+        }
+        if (get50MoveRuleTurns() >= 100) {
             currentMessage = "50-move-rule applies";
             gameOver = true;
             return;
@@ -100,39 +271,106 @@ public class ChessBoard {
         currentMessage = "";
     }
 
-    public void recalculateAttackedFields() {
-        resetAttackedFields();
-        Arrays.stream(fields)
-                .filter(f -> f.figure != null && f.figure.getColor() == Color.WHITE)
-                .forEach(f -> attackedFields.get(Color.WHITE).addAll(f.getFigure().getAccessibleFields()));
-        Arrays.stream(fields)
-                .filter(f -> f.figure != null && f.figure.getColor() == Color.BLACK)
-                .forEach(f -> attackedFields.get(Color.BLACK).addAll(f.getFigure().getAccessibleFields()));
+    //check, mate or stalemate of the player on turn, taken from the position cache if there is one
+    public int getState() {
+        if (cached != null) {
+            return cached.getState();
+        }
+        if (positionCache == null) {
+            return computeState();
+        }
+        cached = positionCache.get(position.getKey());
+        if (cached == null) {
+            long[] moves = new long[64];
+            Color turn = getTurn();
+            int[] squares = position.getPieceList(turn);
+            for (int i = position.getPieceCount(turn) - 1; i >= 0; i--) {
+                moves[squares[i]] = moveGenerator.getLegalMoves(this, squares[i]);
+            }
+            cached = positionCache.put(position.getKey(), moves, computeState());
+        }
+        return cached.getState();
     }
 
-    public Set<ChessField> getAllAccessibleFields(Color color) {
-        return attackedFields.get(color);
+    private int computeState() {
+        King king = getKing(getTurn());
+        if (king == null) {
+            return PositionCache.NONE;
+        }
+        if (king.isCheck(this)) {
+            return king.isCheckMate(this) ? PositionCache.CHECK_MATE : PositionCache.CHECK;
+        }
+        return king.isStaleMate(this) ? PositionCache.STALE_MATE : PositionCache.NONE;
     }
 
-    public King getKing(Color color) {
-        for (ChessField field : fields) {
-            if (field.figure instanceof King && field.figure.getColor() == color) {
-                return (King) field.figure;
+    public long getKey() {
+        return position.getKey();
+    }
+
+    //only positions since the last capture or pawn move can repeat, and only every second one
+    //has the same player on turn
+    public boolean isThreefoldRepetition() {
+        long key = position.getKey();
+        int oldest = Math.max(0, undoSize - position.getRuleOf50());
+        int repetitions = 0;
+        for (int i = undoSize - 2; i >= oldest; i -= 2) {
+            if (keyHistory[i] == key && ++repetitions == 2) {
+                return true;
             }
         }
-        return null;
+        return false;
+    }
+
+    public void recalculateAttackedFields() {
+        attackMap.recalculate(position);
+        invalidate();
+    }
+
+    private void invalidate() {
+        moveGenerator.invalidate();
+        cached = null;
+    }
+
+    //bitboard of the fields the figure on the square can legally move to, this is empty for figures
+    //of the player who is not on turn
+    public long getLegalMoves(int square) {
+        if (cached != null) {
+            return cached.getMoves(square);
+        }
+        return moveGenerator.getLegalMoves(this, square);
+    }
+
+    public boolean hasLegalMoves() {
+        return moveGenerator.hasLegalMoves(this);
+    }
+
+    //bitboard of all fields attacked by the figures of the given color
+    public long getAttackedFields(Color color) {
+        return attackMap.getAttacked(color);
+    }
+
+    public boolean isAttacked(ChessField field, Color by) {
+        return attackMap.isAttacked(field.getSquare(), by);
+    }
+
+    public King getKing(Color color) {
+        int square = position.getKingSquare(color);
+        return square == Position.NO_SQUARE ? null : (King) getFigure(square);
+    }
+
+    public ChessField getKingField(Color color) {
+        int square = position.getKingSquare(color);
+        return square == Position.NO_SQUARE ? null : ChessField.of(square);
     }
 
-    public List<Figure> getFigures() {
-        return getFigures(null);
+    //squares occupied by figures of the given color, only the first getFigureCount(color) entries are valid,
+    //the array is owned by the board and changes with every move
+    public int[] getFigureSquares(Color color) {
+        return position.getPieceList(color);
     }
 
-    public List<Figure> getFigures(Color color) {
-        List<Figure> figures = new ArrayList<>();
-        Arrays.stream(fields)
-                .filter(f -> f.figure != null && (color == null || f.figure.getColor() == color))
-                .forEach(f -> figures.add(f.figure));
-        return figures;
+    public int getFigureCount(Color color) {
+        return position.getPieceCount(color);
     }
 
     public String getCurrentMessage() {
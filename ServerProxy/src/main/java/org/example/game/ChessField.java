@@ -1,29 +1,28 @@
 package org.example.game;
 
-import org.example.game.figure.Figure;
-
+//immutable handle of a single square, the figures standing on it are stored in the Position
 public class ChessField {
+    private static final ChessField[] FIELDS = new ChessField[64];
+
+    static {
+        for (int i = 0; i < 64; i++) {
+            FIELDS[i] = new ChessField(Position.getX(i), Position.getY(i));
+        }
+    }
 
-    Figure figure;
     private final int x, y;
-    private final ChessBoard board;
 
-    ChessField(ChessBoard board, int x, int y) {
-        this.board = board;
+    private ChessField(int x, int y) {
         this.x = x;
         this.y = y;
     }
 
-    public ChessBoard getBoard() {
-        return board;
-    }
-
-    public void setFigure(Figure figure) {
-        this.figure = figure;
+    public static ChessField of(int square) {
+        return FIELDS[square];
     }
 
-    public Figure getFigure() {
-        return figure;
+    public static ChessField of(int x, int y) {
+        return x < 0 || x > 7 || y < 0 || y > 7 ? null : FIELDS[Position.square(x, y)];
     }
 
     public int getX() {
@@ -34,6 +33,14 @@ public class ChessField {
         return y;
     }
 
+    public int getSquare() {
+        return Position.square(x, y);
+    }
+
+    public String getPos() {
+        return ((char) (x + 97)) + "" + ((char) (7 - y + 49));
+    }
+
     @Override
     public String toString() {
         return "<" + x + "," + y + ">";
@@ -0,0 +1,45 @@
+package org.example.game;
+
+//moves are packed into a single int: bits 0-5 from square, 6-11 to square,
+//12-14 promotion type + 1 (0 without promotion) and the flags from bit 15 on
+public final class Move {
+    public static final int NONE = 0;
+
+    public static final int CAPTURE = 1;
+    public static final int DOUBLE_PUSH = 2;
+    public static final int EN_PASSANT = 4;
+    public static final int CASTLING = 8;
+
+    private Move() {
+    }
+
+    public static int of(int from, int to, int promotion, int flags) {
+        return from | to << 6 | (promotion + 1) << 12 | flags << 15;
+    }
+
+    public static int from(int move) {
+        return move & 63;
+    }
+
+    public static int to(int move) {
+        return move >>> 6 & 63;
+    }
+
+    //promotion type or Position.EMPTY
+    public static int promotion(int move) {
+        return (move >>> 12 & 7) - 1;
+    }
+
+    public static int flags(int move) {
+        return move >>> 15;
+    }
+
+    public static boolean is(int move, int flag) {
+        return (flags(move) & flag) != 0;
+    }
+
+    public static String toString(int move) {
+        String s = ChessField.of(from(move)).getPos() + ChessField.of(to(move)).getPos();
+        return promotion(move) == Position.EMPTY ? s : s + "pnbrqk".charAt(promotion(move));
+    }
+}
@@ -0,0 +1,133 @@
+package org.example.game;
+
+import org.example.game.figure.FigureFactory;
+
+//generates the legal moves of the player to move without simulating them: checking figures,
+//the fields that resolve a check and pinned figures are computed once per position. The board of the position is
+//passed to the calls, so the board can create its generator while it is being constructed
+public class MoveGenerator {
+    private final Position position;
+
+    private boolean valid = false;
+    private Color us;
+    private int kingSquare;
+    private long checkers;
+    private long checkMask;
+    private long pinned;
+    private long kingDanger;
+
+    MoveGenerator(Position position) {
+        this.position = position;
+    }
+
+    //has to be called whenever the position changes
+    void invalidate() {
+        valid = false;
+    }
+
+    private void update(ChessBoard board) {
+        if (valid) {
+            return;
+        }
+        valid = true;
+        us = position.getTurn();
+        Color them = us.revert();
+        kingSquare = position.getKingSquare(us);
+        checkers = 0;
+        checkMask = Bitboards.ALL;
+        pinned = 0;
+        kingDanger = board.getAttackedFields(them);
+        if (kingSquare == Position.NO_SQUARE) {
+            return;
+        }
+        long occupied = position.getOccupied();
+        checkers = attackersTo(kingSquare, them, occupied);
+        if (checkers != 0) {
+            int checker = Long.numberOfTrailingZeros(checkers);
+            checkMask = Long.bitCount(checkers) > 1 ? 0 : Bitboards.bit(checker) | Bitboards.between(kingSquare, checker);
+            //the king can't step back along the line of a checking slider
+            for (long sliders = checkers & ~position.getPieces(Position.PAWN) & ~position.getPieces(Position.KNIGHT);
+                 sliders != 0; sliders &= sliders - 1) {
+                int slider = Long.numberOfTrailingZeros(sliders);
+                kingDanger |= Bitboards.line(slider, kingSquare) & ~Bitboards.bit(slider);
+            }
+        }
+        //sliders of the opponent that would attack the king if there was no figure in between
+        long queens = position.getPieces(Position.QUEEN, them);
+        long snipers = Bitboards.rookAttacks(kingSquare, 0) & (position.getPieces(Position.ROOK, them) | queens)
+                | Bitboards.bishopAttacks(kingSquare, 0) & (position.getPieces(Position.BISHOP, them) | queens);
+        for (; snipers != 0; snipers &= snipers - 1) {
+            long blockers = Bitboards.between(kingSquare, Long.numberOfTrailingZeros(snipers)) & occupied;
+            if (Long.bitCount(blockers) == 1) {
+                pinned |= blockers & position.getPieces(us);
+            }
+        }
+    }
+
+    //bitboard of the fields the figure on the square can legally move to
+    public long getLegalMoves(ChessBoard board, int square) {
+        update(board);
+        int piece = position.getPiece(square);
+        if (piece == Position.EMPTY || Position.colorOf(piece) != us) {
+            return 0;
+        }
+        long moves = FigureFactory.getFigure(piece).getMoves(board, square);
+        int type = Position.typeOf(piece);
+        if (type == Position.KING) {
+            return moves & ~kingDanger;
+        }
+        long allowed = checkMask;
+        if ((pinned & Bitboards.bit(square)) != 0) {
+            allowed &= Bitboards.line(kingSquare, square);
+        }
+        long legal = moves & allowed;
+        int enPassant = position.getEnPassantSquare();
+        if (type == Position.PAWN && enPassant != Position.NO_SQUARE && (moves & Bitboards.bit(enPassant)) != 0) {
+            legal &= ~Bitboards.bit(enPassant);
+            if (isLegalEnPassant(square, enPassant)) {
+                legal |= Bitboards.bit(enPassant);
+            }
+        }
+        return legal;
+    }
+
+    public boolean hasLegalMoves(ChessBoard board) {
+        update(board);
+        if (kingSquare != Position.NO_SQUARE && getLegalMoves(board, kingSquare) != 0) {
+            return true;
+        }
+        int[] squares = position.getPieceList(us);
+        for (int i = position.getPieceCount(us) - 1; i >= 0; i--) {
+            if (getLegalMoves(board, squares[i]) != 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public boolean isCheck(ChessBoard board) {
+        update(board);
+        return checkers != 0;
+    }
+
+    //en passant removes two figures from a line at once, so the king is tested directly
+    private boolean isLegalEnPassant(int from, int to) {
+        if (kingSquare == Position.NO_SQUARE) {
+            return true;
+        }
+        int captured = us == Color.WHITE ? to + 8 : to - 8;
+        long occupied = position.getOccupied() ^ Bitboards.bit(from) ^ Bitboards.bit(captured) | Bitboards.bit(to);
+        return (attackersTo(kingSquare, us.revert(), occupied) & ~Bitboards.bit(captured)) == 0;
+    }
+
+    //bitboard of the figures of the given color attacking the square
+    private long attackersTo(int square, Color by, long occupied) {
+        long queens = position.getPieces(Position.QUEEN, by);
+        return Bitboards.rookAttacks(square, occupied) & (position.getPieces(Position.ROOK, by) | queens)
+                | Bitboards.bishopAttacks(square, occupied) & (position.getPieces(Position.BISHOP, by) | queens)
+                | Bitboards.knightAttacks(square) & position.getPieces(Position.KNIGHT, by)
+                | Bitboards.kingAttacks(square) & position.getPieces(Position.KING, by)
+                //a pawn of the other color standing on the square attacks exactly the attacking pawns
+                | Bitboards.pawnAttacks(by.revert(), square) & position.getPieces(Position.PAWN, by);
+    }
+}
@@ -0,0 +1,304 @@
+package org.example.game;
+
+import java.util.Arrays;
+
+//bitboard representation of a chess position
+//squares are indexed like the fields of the board: index = y * 8 + x, y = 0 is the black back rank
+public class Position {
+    public static final int PAWN = 0;
+    public static final int KNIGHT = 1;
+    public static final int BISHOP = 2;
+    public static final int ROOK = 3;
+    public static final int QUEEN = 4;
+    public static final int KING = 5;
+
+    public static final int EMPTY = -1;
+    public static final int NO_SQUARE = -1;
+
+    public static final int WHITE_KING_SIDE = 1;
+    public static final int WHITE_QUEEN_SIDE = 2;
+    public static final int BLACK_KING_SIDE = 4;
+    public static final int BLACK_QUEEN_SIDE = 8;
+
+    private final long[] colors = new long[2];
+    private final long[] types = new long[6];
+    private final byte[] pieces = new byte[64];
+    private final int[] firstTurns = new int[64];
+    //squares of the figures of each color and the index of every square in its list
+    private final int[][] pieceLists = new int[2][64];
+    private final int[] pieceCounts = new int[2];
+    private final int[] listIndex = new int[64];
+    private final int[] kingSquares = {NO_SQUARE, NO_SQUARE};
+
+    private int currentTurn = 1;
+    private int ruleOf50 = 0;
+    private int castlingRights = 0;
+    private int enPassantSquare = NO_SQUARE;
+    //squares whose figure changed since the last clearTouched()
+    private long touched = 0;
+    //zobrist key, updated with every change of the position
+    private long key = Zobrist.castling(0);
+    //the en passant square only counts for the key if a pawn can actually take en passant
+    private long enPassantKey = 0;
+
+    public Position() {
+        Arrays.fill(pieces, (byte) EMPTY);
+    }
+
+    //copies every field of the other position, which is left as it is
+    public void copyFrom(Position other) {
+        System.arraycopy(other.colors, 0, colors, 0, colors.length);
+        System.arraycopy(other.types, 0, types, 0, types.length);
+        System.arraycopy(other.pieces, 0, pieces, 0, pieces.length);
+        System.arraycopy(other.firstTurns, 0, firstTurns, 0, firstTurns.length);
+        for (int color = 0; color < 2; color++) {
+            System.arraycopy(other.pieceLists[color], 0, pieceLists[color], 0, other.pieceCounts[color]);
+        }
+        System.arraycopy(other.pieceCounts, 0, pieceCounts, 0, pieceCounts.length);
+        System.arraycopy(other.listIndex, 0, listIndex, 0, listIndex.length);
+        System.arraycopy(other.kingSquares, 0, kingSquares, 0, kingSquares.length);
+        currentTurn = other.currentTurn;
+        ruleOf50 = other.ruleOf50;
+        castlingRights = other.castlingRights;
+        enPassantSquare = other.enPassantSquare;
+        touched = other.touched;
+        key = other.key;
+        enPassantKey = other.enPassantKey;
+    }
+
+    public static int square(int x, int y) {
+        return y * 8 + x;
+    }
+
+    public static int getX(int square) {
+        return square & 7;
+    }
+
+    public static int getY(int square) {
+        return square >>> 3;
+    }
+
+    public static int piece(int type, Color color) {
+        return type << 1 | color.ordinal();
+    }
+
+    public static int typeOf(int piece) {
+        return piece >> 1;
+    }
+
+    public static Color colorOf(int piece) {
+        return (piece & 1) == 0 ? Color.BLACK : Color.WHITE;
+    }
+
+    public int getPiece(int square) {
+        return pieces[square];
+    }
+
+    public boolean isEmpty(int square) {
+        return pieces[square] == EMPTY;
+    }
+
+    public long getOccupied() {
+        return colors[0] | colors[1];
+    }
+
+    public long getPieces(Color color) {
+        return colors[color.ordinal()];
+    }
+
+    public long getPieces(int type) {
+        return types[type];
+    }
+
+    public long getPieces(int type, Color color) {
+        return types[type] & colors[color.ordinal()];
+    }
+
+    public int getKingSquare(Color color) {
+        return kingSquares[color.ordinal()];
+    }
+
+    //squares of the figures of the given color, only the first getPieceCount(color) entries are valid
+    public int[] getPieceList(Color color) {
+        return pieceLists[color.ordinal()];
+    }
+
+    public int getPieceCount(Color color) {
+        return pieceCounts[color.ordinal()];
+    }
+
+    public int getFirstTurn(int square) {
+        return firstTurns[square];
+    }
+
+    public void setFirstTurn(int square, int firstTurn) {
+        firstTurns[square] = firstTurn;
+    }
+
+    public void put(int square, int piece, int firstTurn) {
+        if (pieces[square] != EMPTY) {
+            remove(square);
+        }
+        long bit = 1L << square;
+        colors[piece & 1] |= bit;
+        types[piece >> 1] |= bit;
+        pieces[square] = (byte) piece;
+        firstTurns[square] = firstTurn;
+        int color = piece & 1;
+        listIndex[square] = pieceCounts[color];
+        pieceLists[color][pieceCounts[color]++] = square;
+        if (piece >> 1 == KING) {
+            kingSquares[color] = square;
+        }
+        touched |= bit;
+        key ^= Zobrist.piece(piece, square);
+    }
+
+    public int remove(int square) {
+        int piece = pieces[square];
+        if (piece != EMPTY) {
+            long bit = 1L << square;
+            colors[piece & 1] &= ~bit;
+            types[piece >> 1] &= ~bit;
+            pieces[square] = EMPTY;
+            //the last entry of the list takes the place of the removed one
+            int color = piece & 1;
+            int last = pieceLists[color][--pieceCounts[color]];
+            pieceLists[color][listIndex[square]] = last;
+            listIndex[last] = listIndex[square];
+            if (piece >> 1 == KING && kingSquares[color] == square) {
+                kingSquares[color] = NO_SQUARE;
+            }
+            touched |= bit;
+            key ^= Zobrist.piece(piece, square);
+        }
+        return piece;
+    }
+
+    //moves the piece including its first turn, returns the captured piece or EMPTY
+    public int move(int from, int to) {
+        int captured = remove(to);
+        int piece = pieces[from];
+        long bits = 1L << from | 1L << to;
+        colors[piece & 1] ^= bits;
+        types[piece >> 1] ^= bits;
+        pieces[to] = (byte) piece;
+        pieces[from] = EMPTY;
+        firstTurns[to] = firstTurns[from];
+        int color = piece & 1;
+        listIndex[to] = listIndex[from];
+        pieceLists[color][listIndex[to]] = to;
+        if (piece >> 1 == KING) {
+            kingSquares[color] = to;
+        }
+        touched |= bits;
+        key ^= Zobrist.piece(piece, from) ^ Zobrist.piece(piece, to);
+        return captured;
+    }
+
+    public long clearTouched() {
+        long squares = touched;
+        touched = 0;
+        return squares;
+    }
+
+    public int getCurrentTurn() {
+        return currentTurn;
+    }
+
+    public void setCurrentTurn(int currentTurn) {
+        if (((this.currentTurn ^ currentTurn) & 1) != 0) {
+            key ^= Zobrist.blackToMove();
+        }
+        this.currentTurn = currentTurn;
+    }
+
+    public Color getTurn() {
+        return currentTurn % 2 == 0 ? Color.BLACK : Color.WHITE;
+    }
+
+    public int getRuleOf50() {
+        return ruleOf50;
+    }
+
+    public void setRuleOf50(int ruleOf50) {
+        this.ruleOf50 = ruleOf50;
+    }
+
+    public int getCastlingRights() {
+        return castlingRights;
+    }
+
+    public void setCastlingRights(int castlingRights) {
+        key ^= Zobrist.castling(this.castlingRights) ^ Zobrist.castling(castlingRights);
+        this.castlingRights = castlingRights;
+    }
+
+    public int getEnPassantSquare() {
+        return enPassantSquare;
+    }
+
+    public void setEnPassantSquare(int enPassantSquare) {
+        key ^= enPassantKey;
+        enPassantKey = 0;
+        this.enPassantSquare = enPassantSquare;
+        if (enPassantSquare != NO_SQUARE) {
+            //the pawn that can be taken stands in front of the square, the capturing pawns next to it
+            int pawnSquare = getY(enPassantSquare) == 5 ? enPassantSquare - 8 : enPassantSquare + 8;
+            Color capturer = getY(enPassantSquare) == 5 ? Color.BLACK : Color.WHITE;
+            long neighbours = (getX(pawnSquare) > 0 ? 1L << pawnSquare - 1 : 0)
+                    | (getX(pawnSquare) < 7 ? 1L << pawnSquare + 1 : 0);
+            if ((neighbours & getPieces(PAWN, capturer)) != 0) {
+                enPassantKey = Zobrist.enPassant(enPassantSquare);
+                key ^= enPassantKey;
+            }
+        }
+    }
+
+    public long getKey() {
+        return key;
+    }
+
+    //a king or rook moving from or a figure being captured on this square loses the castling rights bound to it
+    public void clearCastlingRights(int square) {
+        switch (square) {
+            case 60 -> setCastlingRights(castlingRights & ~(WHITE_KING_SIDE | WHITE_QUEEN_SIDE));
+            case 63 -> setCastlingRights(castlingRights & ~WHITE_KING_SIDE);
+            case 56 -> setCastlingRights(castlingRights & ~WHITE_QUEEN_SIDE);
+            case 4 -> setCastlingRights(castlingRights & ~(BLACK_KING_SIDE | BLACK_QUEEN_SIDE));
+            case 7 -> setCastlingRights(castlingRights & ~BLACK_KING_SIDE);
+            case 0 -> setCastlingRights(castlingRights & ~BLACK_QUEEN_SIDE);
+        }
+    }
+
+    //derives castling rights and the en passant square from the first turns of the figures,
+    //which is all the json board format stores
+    public void deriveState() {
+        int rights = 0;
+        if (hasNotMoved(square(4, 7), piece(KING, Color.WHITE))) {
+            if (hasNotMoved(square(7, 7), piece(ROOK, Color.WHITE))) rights |= WHITE_KING_SIDE;
+            if (hasNotMoved(square(0, 7), piece(ROOK, Color.WHITE))) rights |= WHITE_QUEEN_SIDE;
+        }
+        if (hasNotMoved(square(4, 0), piece(KING, Color.BLACK))) {
+            if (hasNotMoved(square(7, 0), piece(ROOK, Color.BLACK))) rights |= BLACK_KING_SIDE;
+            if (hasNotMoved(square(0, 0), piece(ROOK, Color.BLACK))) rights |= BLACK_QUEEN_SIDE;
+        }
+        setCastlingRights(rights);
+        int enPassant = NO_SQUARE;
+        //a pawn of the player who just moved that did a double step on the last turn
+        Color moved = getTurn().revert();
+        int y = moved == Color.WHITE ? 4 : 3;
+        int behind = moved == Color.WHITE ? 5 : 2;
+        for (int x = 0; x < 8; x++) {
+            int sq = square(x, y);
+            if (pieces[sq] == piece(PAWN, moved) && currentTurn - firstTurns[sq] == 1) {
+                enPassant = square(x, behind);
+            }
+        }
+        setEnPassantSquare(enPassant);
+    }
+
+    private boolean hasNotMoved(int square, int piece) {
+        return pieces[square] == piece && firstTurns[square] < 0;
+    }
+}
@@ -0,0 +1,121 @@
+package org.example.game;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+//bounded cache of the legal moves and the game state of positions, shared by all games,
+//positions are identified by their zobrist key and evicted with the CLOCK algorithm
+public class PositionCache {
+    public static final int NONE = 0;
+    public static final int CHECK = 1;
+    public static final int CHECK_MATE = 2;
+    public static final int STALE_MATE = 3;
+
+    private final ConcurrentHashMap<Long, Entry> entries;
+    private final Entry[] clock;
+    private int hand = 0;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public PositionCache(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+        }
+        entries = new ConcurrentHashMap<>(capacity * 4 / 3 + 1);
+        clock = new Entry[capacity];
+    }
+
+    public Entry get(long key) {
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        entry.referenced = true;
+        return entry;
+    }
+
+    //moves holds the legal moves of every square of the player on turn, returns the entry stored for the key
+    public Entry put(long key, long[] moves, int state) {
+        Entry entry = new Entry(key, moves, state);
+        Entry present = entries.putIfAbsent(key, entry);
+        if (present != null) {
+            return present;
+        }
+        synchronized (clock) {
+            //entries referenced since the hand passed them last get a second chance
+            while (clock[hand] != null && clock[hand].referenced) {
+                clock[hand].referenced = false;
+                hand = (hand + 1) % clock.length;
+            }
+            Entry victim = clock[hand];
+            if (victim != null) {
+                entries.remove(victim.key, victim);
+                evictions.increment();
+            }
+            clock[hand] = entry;
+            hand = (hand + 1) % clock.length;
+        }
+        return entry;
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public int getCapacity() {
+        return clock.length;
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    public double getHitRate() {
+        long hits = getHits();
+        long total = hits + getMisses();
+        return total == 0 ? 0 : (double) hits / total;
+    }
+
+    @Override
+    public String toString() {
+        return "PositionCache:<" + size() + "/" + getCapacity() + " hits=" + getHits() + " misses=" + getMisses()
+                + " evictions=" + getEvictions() + ">";
+    }
+
+    public static class Entry {
+        private final long key;
+        private final long[] moves;
+        private final int state;
+        private volatile boolean referenced = false;
+
+        private Entry(long key, long[] moves, int state) {
+            this.key = key;
+            this.moves = moves;
+            this.state = state;
+        }
+
+        public long getKey() {
+            return key;
+        }
+
+        public long getMoves(int square) {
+            return moves[square];
+        }
+
+        public int getState() {
+            return state;
+        }
+    }
+}
@@ -1,38 +1,20 @@
 package org.example.game.figure;
 
 import org.example.game.ChessBoard;
-import org.example.game.ChessField;
 import org.example.game.Color;
+import org.example.game.Position;
 
-import java.io.Serializable;
-import java.util.ArrayList;
-import java.util.List;
+//figures are stateless flyweights, where a figure stands is only stored in the Position of the board
+public abstract class Figure {
 
-public abstract class Figure implements Serializable {
-
-    transient ChessField field;
-    private final ChessBoard board;
-    int x, y = -1;
-    Color color;
+    final Color color;
     private final String name;
-    private int firstTurn = -1;
+    private final int type;
 
-    Figure(Color color, String name, ChessField field) {
+    Figure(Color color, String name, int type) {
         this.color = color;
         this.name = name;
-        this.board = field.getBoard();
-        setField(field);
-        this.x = field.getX();
-        this.y = field.getY();
-        field.setFigure(this);
-    }
-
-    public int getX() {
-        return x;
-    }
-
-    public int getY() {
-        return y;
+        this.type = type;
     }
 
     public Color getColor() {
@@ -43,97 +25,42 @@ public abstract class Figure implements Serializable {
         return name;
     }
 
-    public String getPos() {
-        return ((char) (x + 97)) + "" + ((char) (7 - y + 49));
+    public int getType() {
+        return type;
     }
 
-    //returns whether the Figure was successfully moved
-    public Figure move(ChessField field) {
-        Figure killedFigure = field.getFigure();
-        field.setFigure(this);
-        if (this.field != null) {
-            this.field.setFigure(null);
-        }
-        int oldX = x;
-        int oldY = y;
-        x = field.getX();
-        y = field.getY();
-        setField(field);
-        Figure postFigure = postTurnAction(board.getField(oldX, oldY), field);
-        if (firstTurn < 0) {
-            firstTurn = field.getBoard().getCurrentTurn();
-        }
-        if (killedFigure != null || !(postFigure instanceof Pawn)) {
-            board.set50MoveRuleTurns(0);
-        }
-        return killedFigure == null ? postFigure : killedFigure;
+    public int getPiece() {
+        return Position.piece(type, color);
     }
 
-    public boolean canMoveTo(ChessField field) {
-        return canMove() && getAllAccessibleFields().contains(field);
+    public boolean canMoveTo(ChessBoard board, int from, int to) {
+        return canMove(board) && (board.getLegalMoves(from) & 1L << to) != 0;
     }
 
-    public boolean canMove() {
-        return getField().getBoard().getTurn() == color;
+    public boolean canMove(ChessBoard board) {
+        return board.getTurn() == color;
     }
 
-    public void setField(ChessField field) {
-        this.field = field;
+    //returns a bitboard of all fields this figure standing on the given square can move to,
+    //including fields with opponent's figures that can be beaten but ignoring the own king
+    public long getMoves(ChessBoard board, int square) {
+        Position position = board.getPosition();
+        return getAttacks(position, square) & ~position.getPieces(color);
     }
 
-    public ChessField getField() {
-        return field;
-    }
+    //returns a bitboard of all fields attacked by this figure standing on the given square,
+    //including fields of own figures it defends
+    public abstract long getAttacks(Position position, int square);
 
-    //executed after this Figure has been moved to the parameter field
-    public Figure postTurnAction(ChessField oldField, ChessField newField) {
-        return null;
+    //bitboard of the single field at the offset from the square, or 0 if that is off the board
+    static long step(int square, int dx, int dy) {
+        int x = Position.getX(square) + dx;
+        int y = Position.getY(square) + dy;
+        return x < 0 || x > 7 || y < 0 || y > 7 ? 0 : 1L << Position.square(x, y);
     }
 
-    //this also considers the king being in check
-    public List<ChessField> getAllAccessibleFields() {
-        List<ChessField> fields = getAccessibleFields();
-        King king = field.getBoard().getKing(color);
-        if (king != null) {
-            List<ChessField> trueFields = new ArrayList<>();
-            ChessField oldField = field;
-            for (ChessField to : fields) {
-                //simulate move to that field
-                Figure killedFigure = move(to);
-                field.getBoard().recalculateAttackedFields();
-                boolean check = king.isCheck();
-                if (!check) {
-                    trueFields.add(to);
-                }
-                //revert move
-                move(oldField);
-                if (killedFigure != null) {
-                    killedFigure.field.setFigure(killedFigure);
-                }
-                field.getBoard().recalculateAttackedFields();
-            }
-            fields = trueFields;
-        }
-        return fields;
-    }
-
-    public int getFirstTurn() {
-        return firstTurn;
-    }
-
-    public void setFirstTurn(int firstTurn) {
-        this.firstTurn = firstTurn;
-    }
-
-    //returns a list of all accessible fields of this figure, including fields with opponent's figures
-    //that can be beaten
-    public abstract List<ChessField> getAccessibleFields();
-
     @Override
     public String toString() {
-        return "Figure:<" + color.getName() +
-                " " + name + " " +
-                "x=" + x + " y=" + y +
-                " Field=" + field + ">";
+        return "Figure:<" + color.getName() + " " + name + ">";
     }
 }
@@ -4,9 +4,44 @@ package org.example.game.figure;
 import org.example.game.ChessBoard;
 import org.example.game.ChessField;
 import org.example.game.Color;
+import org.example.game.Position;
 
 public class FigureFactory {
 
+    //one flyweight per piece code of the Position
+    private static final Figure[] FIGURES = new Figure[12];
+
+    static {
+        for (Color color : Color.values()) {
+            register(new Pawn(color));
+            register(new Knight(color));
+            register(new Bishop(color));
+            register(new Rook(color));
+            register(new Queen(color));
+            register(new King(color));
+        }
+    }
+
+    private static void register(Figure figure) {
+        FIGURES[figure.getPiece()] = figure;
+    }
+
+    public static Figure getFigure(int piece) {
+        return FIGURES[piece];
+    }
+
+    public static Figure getFigure(Color color, String type) {
+        return switch (type.toLowerCase()) {
+            case "rook" -> FIGURES[Position.piece(Position.ROOK, color)];
+            case "knight" -> FIGURES[Position.piece(Position.KNIGHT, color)];
+            case "bishop" -> FIGURES[Position.piece(Position.BISHOP, color)];
+            case "queen" -> FIGURES[Position.piece(Position.QUEEN, color)];
+            case "king" -> FIGURES[Position.piece(Position.KING, color)];
+            case "pawn" -> FIGURES[Position.piece(Position.PAWN, color)];
+            default -> throw new IllegalArgumentException("Unknown Figure: \"" + type + "\"");
+        };
+    }
+
     private final ChessBoard board;
 
     public FigureFactory(ChessBoard board) {
@@ -22,30 +57,14 @@ public class FigureFactory {
         if (x < 0 || x > 7 || y < 0 || y > 7) {
             throw new IllegalArgumentException("Position not on board: \"" + pos + "\"");
         }
-        Figure f = switch (type.toLowerCase()) {
-            case "rook" -> new Rook(color, board.getField(x, y));
-            case "knight" -> new Knight(color, board.getField(x, y));
-            case "bishop" -> new Bishop(color, board.getField(x, y));
-            case "queen" -> new Queen(color, board.getField(x, y));
-            case "king" -> new King(color, board.getField(x, y));
-            case "pawn" -> new Pawn(color, board.getField(x, y));
-            default -> throw new IllegalArgumentException("Unknown Figure: \"" + type + "\"");
-        };
-        f.setFirstTurn(firstTurn);
+        Figure f = getFigure(color, type);
+        board.setFigure(f, board.getField(x, y), firstTurn);
         return f;
     }
 
+    //replaces the figure on the field with a new one that has not moved yet
     public void createFigure(Color color, String type, ChessField field) {
-        switch (type.toLowerCase()) {
-            case "rook" -> new Rook(color, field);
-            case "knight" -> new Knight(color, field);
-            case "bishop" -> new Bishop(color, field);
-            case "queen" -> new Queen(color, field);
-            case "king" -> new King(color, field);
-            case "pawn" -> new Pawn(color, field);
-            default -> throw new IllegalArgumentException("Unknown Figure: \"" + type + "\"");
-        }
+        board.setFigure(getFigure(color, type), field, -1);
     }
 
 }
-
@@ -1,106 +1,55 @@
 package org.example.game.figure;
 
-import org.example.game.ChessField;
+import org.example.game.Bitboards;
+import org.example.game.ChessBoard;
 import org.example.game.Color;
-
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Set;
+import org.example.game.Position;
 
 public class King extends Figure {
 
-    public King(Color color, ChessField field) {
-        super(color, "king", field);
+    public King(Color color) {
+        super(color, "king", Position.KING);
     }
 
     @Override
-    public List<ChessField> getAccessibleFields() {
-        List<ChessField> fields = new ArrayList<>();
-        Set<ChessField> attackedFields = field.getBoard().getAllAccessibleFields(color.revert());
-        //check for fields that are not attacked and not occupied by own figures or enemy king
-        for (int kx = -1; kx <= 1; kx++) {
-            for (int ky = -1; ky <= 1; ky++) {
-                ChessField f;
-                if ((f = field.getBoard().getField(field.getX() + kx, field.getY() + ky)) != null
-                        && f != field
-                        && !attackedFields.contains(f)
-                        && (f.getFigure() == null
-                        || f.getFigure() != null && f.getFigure().color != color)) {
-                    fields.add(f);
-                }
-            }
+    public long getMoves(ChessBoard board, int square) {
+        Position position = board.getPosition();
+        long moves = super.getMoves(board, square);
+        if (isCheck(board)) {
+            return moves;
+        }
+        //check for castling, the king may not pass or land on attacked fields
+        long occupied = position.getOccupied();
+        long attackedFields = board.getAttackedFields(color.revert());
+        int rights = position.getCastlingRights();
+        int kingSide = color == Color.WHITE ? Position.WHITE_KING_SIDE : Position.BLACK_KING_SIDE;
+        int queenSide = color == Color.WHITE ? Position.WHITE_QUEEN_SIDE : Position.BLACK_QUEEN_SIDE;
+        long right = 3L << square + 1;
+        if ((rights & kingSide) != 0 && ((occupied | attackedFields) & right) == 0) {
+            moves |= 1L << square + 2;
         }
-        //check for castling
-        if (getFirstTurn() < 0) {
-            ChessField rookField = field.getBoard().getField(7, y);
-            if (rookField.getFigure() instanceof Rook && rookField.getFigure().getFirstTurn() < 0) {
-                //check right castling
-                boolean right = true;
-                for (int i = x + 1; i < 7; i++) {
-                    ChessField current = field.getBoard().getField(i, y);
-                    if (current.getFigure() != null || attackedFields.contains(current)) {
-                        right = false;
-                        break;
-                    }
-                }
-                if (right) {
-                    fields.add(field.getBoard().getField(6, y));
-                }
-            }
-            rookField = field.getBoard().getField(0, y);
-            if (rookField.getFigure() instanceof Rook && rookField.getFigure().getFirstTurn() < 0) {
-                //check left castling
-                boolean left = true;
-                for (int i = x - 1; i > 0; i--) {
-                    ChessField current = field.getBoard().getField(i, y);
-                    if (current.getFigure() != null || i > 1 && attackedFields.contains(current)) {
-                        left = false;
-                        break;
-                    }
-                }
-                if (left) {
-                    fields.add(field.getBoard().getField(2, y));
-                }
-            }
+        long left = 3L << square - 2;
+        if ((rights & queenSide) != 0 && ((occupied | attackedFields) & left) == 0
+                && (occupied & 1L << square - 3) == 0) {
+            moves |= 1L << square - 2;
         }
-        return fields;
+        return moves;
     }
 
-    public boolean isCheck() {
-        return field.getBoard().getAllAccessibleFields(color.revert()).contains(field);
+    @Override
+    public long getAttacks(Position position, int square) {
+        return Bitboards.kingAttacks(square);
     }
 
-    public boolean isCheckMate() {
-        if (isCheck()) {
-            for (Figure figure : field.getBoard().getFigures(color)) {
-                if (!figure.getAllAccessibleFields().isEmpty()) {
-                    return false;
-                }
-            }
-        }
-        return true;
+    public boolean isCheck(ChessBoard board) {
+        return board.isAttacked(board.getKingField(color), color.revert());
     }
 
-    public boolean isStaleMate() {
-        if (!isCheck()) {
-            for (Figure figure : field.getBoard().getFigures(color)) {
-                if (!figure.getAllAccessibleFields().isEmpty()) {
-                    return false;
-                }
-            }
-        }
-        return true;
+    public boolean isCheckMate(ChessBoard board) {
+        return isCheck(board) && !board.hasLegalMoves();
     }
 
-    @Override
-    public Figure postTurnAction(ChessField oldField, ChessField newField) {
-        if (getFirstTurn() < 0) {
-            if (x == 2) {
-                field.getBoard().getField(0, y).getFigure().move(field.getBoard().getField(3, y));
-            } else if (x == 6) {
-                field.getBoard().getField(7, y).getFigure().move(field.getBoard().getField(5, y));
-            }
-        }
-        return null;
+    public boolean isStaleMate(ChessBoard board) {
+        return !isCheck(board) && !board.hasLegalMoves();
     }
 }
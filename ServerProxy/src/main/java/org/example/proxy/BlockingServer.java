@@ -0,0 +1,63 @@
+package org.example.proxy;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+//accepts connections and runs a blocking ChessServerProxy for each of them on a thread of its own,
+//either a platform thread like before or a virtual thread
+public class BlockingServer {
+    private final ServerSocket serverSocket;
+    private final IChessServer chessServer;
+    private final ExecutorService executor;
+    private final QueuedPlayer.Overflow overflow;
+    private final Heartbeat heartbeat;
+
+    private BlockingServer(int port, IChessServer chessServer, ExecutorService executor, QueuedPlayer.Overflow overflow,
+                           Heartbeat heartbeat) throws IOException {
+        this.serverSocket = new ServerSocket(port);
+        this.chessServer = chessServer;
+        this.executor = executor;
+        this.overflow = overflow;
+        this.heartbeat = heartbeat;
+    }
+
+    public static BlockingServer withPlatformThreads(int port, IChessServer chessServer) throws IOException {
+        return withPlatformThreads(port, chessServer, QueuedPlayer.Overflow.DISCONNECT, new Heartbeat());
+    }
+
+    public static BlockingServer withPlatformThreads(int port, IChessServer chessServer, QueuedPlayer.Overflow overflow,
+                                                     Heartbeat heartbeat) throws IOException {
+        return new BlockingServer(port, chessServer, Executors.newThreadPerTaskExecutor(Thread.ofPlatform().factory()),
+                overflow, heartbeat);
+    }
+
+    public static BlockingServer withVirtualThreads(int port, IChessServer chessServer) throws IOException {
+        return withVirtualThreads(port, chessServer, QueuedPlayer.Overflow.DISCONNECT, new Heartbeat());
+    }
+
+    public static BlockingServer withVirtualThreads(int port, IChessServer chessServer, QueuedPlayer.Overflow overflow,
+                                                    Heartbeat heartbeat) throws IOException {
+        return new BlockingServer(port, chessServer, Executors.newVirtualThreadPerTaskExecutor(), overflow, heartbeat);
+    }
+
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    //accepts connections until the server is closed
+    public void run() throws IOException {
+        while (!serverSocket.isClosed()) {
+            Socket s = serverSocket.accept();
+            executor.execute(new ChessServerProxy(s, chessServer, heartbeat, overflow));
+        }
+    }
+
+    public void close() throws IOException {
+        serverSocket.close();
+        heartbeat.close();
+        executor.shutdownNow();
+    }
+}
@@ -1,5 +1,6 @@
 package org.example.proxy;
 
+import com.google.gson.JsonArray;
 import com.google.gson.JsonObject;
 import org.example.exceptions.IllegalMoveException;
 import org.example.exceptions.JsonException;
@@ -8,27 +9,41 @@ import org.example.game.BoardLoader;
 import org.example.game.ChessBoard;
 import org.example.game.ChessField;
 import org.example.game.Color;
+import org.example.game.Move;
+import org.example.game.Position;
+import org.example.game.PositionCache;
 import org.example.game.figure.Figure;
 import org.example.game.figure.FigureFactory;
-import org.example.game.figure.Pawn;
 
+import java.util.ArrayDeque;
+import java.util.Deque;
 import java.util.Objects;
 
+//not thread-safe by itself: the ChessServer runs the operations on a game one after the other
 public class ChessGame {
+    //moves a client can catch up on, a longer gap is sent as a snapshot of the board which is about as large
+    static final int HISTORY = 16;
+
     private final String id;
     private IPlayer whitePlayer;
     private IPlayer blackPlayer;
+    //ids of the players a game of the journal keeps its colors for until they join again, null for a free color
+    private String whiteId;
+    private String blackId;
 
     private final ChessBoard board;
     private final BoardLoader boardLoader;
     private final FigureFactory figureFactory;
+    //number of the last change of the position, every update carries it
+    private int sequence = 0;
+    private final Deque<JsonObject> history = new ArrayDeque<>();
 
     public ChessGame(String id, IPlayer player, Color playerColor) throws JsonException {
-        this.board = new ChessBoard();
-        this.figureFactory = new FigureFactory(board);
-        this.boardLoader = new BoardLoader(figureFactory);
-        boardLoader.loadNewBoard(board);
-        this.id = id;
+        this(id, player, playerColor, null);
+    }
+
+    public ChessGame(String id, IPlayer player, Color playerColor, PositionCache positionCache) throws JsonException {
+        this(id, positionCache);
         switch (playerColor) {
             case WHITE -> {
                 whitePlayer = player;
@@ -41,7 +56,17 @@ public class ChessGame {
         }
     }
 
-    public void movePiece(IPlayer player, int fromX, int fromY, int toX, int toY, String promotionFigure) throws IllegalMoveException, PlayerException {
+    //a game without players, e.g. one that is replayed from the journal
+    public ChessGame(String id, PositionCache positionCache) throws JsonException {
+        this.board = new ChessBoard(positionCache);
+        this.figureFactory = new FigureFactory(board);
+        this.boardLoader = new BoardLoader(figureFactory);
+        boardLoader.loadNewBoard(board);
+        this.id = id;
+    }
+
+    //returns the move that was played, encoded with Move
+    public int movePiece(IPlayer player, int fromX, int fromY, int toX, int toY, String promotionFigure) throws IllegalMoveException, PlayerException {
         if (whitePlayer == null || blackPlayer == null) {
             throw new PlayerException("Both players must be added before starting the game");
         }
@@ -54,48 +79,146 @@ public class ChessGame {
             throw new PlayerException("Player is not part of this game");
         }
 
-        Figure figure = board.getField(fromX, fromY).getFigure();
-        ChessField field = board.getField(toX, toY);
+        ChessField from = board.getField(fromX, fromY);
+        ChessField to = board.getField(toX, toY);
+        Figure figure = from == null ? null : board.getFigure(from);
         if (figure == null) {
             throw new IllegalMoveException("No figure on field " + fromX + "," + fromY);
         }
-        if (!figure.canMoveTo(field)) {
+        if (to == null || !figure.canMoveTo(board, from.getSquare(), to.getSquare())) {
             throw new IllegalMoveException("Figure cannot move to " + toX + "," + toY);
         }
 
-        figure.move(field);
-
-        boolean isPromotion = figure instanceof Pawn && (toY == 0 || toY == 7);
+        boolean isPromotion = figure.getType() == Position.PAWN && (toY == 0 || toY == 7);
+        int promotion = Position.EMPTY;
         if (isPromotion) {
-            figureFactory.createFigure(playerColor, promotionFigure, field);
+            promotion = getPromotionType(playerColor, promotionFigure);
+        }
+
+        int move = board.getMove(from.getSquare(), to.getSquare(), promotion);
+        if (move == Move.NONE) {
+            throw new IllegalMoveException("Figure cannot move to " + toX + "," + toY);
+        }
+        String promoted = isPromotion ? promotionFigure : "";
+        play(move, promoted);
+
+        blackPlayer.updateGame(fromX, fromY, toX, toY, promoted, isFinished(), board.getCurrentMessage(), sequence);
+        whitePlayer.updateGame(fromX, fromY, toX, toY, promoted, isFinished(), board.getCurrentMessage(), sequence);
+        return move;
+    }
+
+    //plays a move of the journal again without telling the players, only the squares and the promotion are used
+    public void replay(int move) throws IllegalMoveException {
+        int promotion = Move.promotion(move);
+        int legal = board.getMove(Move.from(move), Move.to(move), promotion);
+        if (legal == Move.NONE) {
+            throw new IllegalMoveException("Move " + Move.toString(move) + " cannot be replayed");
+        }
+        String promoted = promotion == Position.EMPTY ? ""
+                : FigureFactory.getFigure(Position.piece(promotion, board.getTurn())).getName();
+        play(legal, promoted);
+    }
+
+    private void play(int move, String promoted) {
+        board.move(move);
+        sequence++;
+        ChessField from = ChessField.of(Move.from(move));
+        ChessField to = ChessField.of(Move.to(move));
+        history.addLast(update(from.getX(), from.getY(), to.getX(), to.getY(), promoted, isFinished(), board.getCurrentMessage(), sequence));
+        if (history.size() > HISTORY) {
+            history.removeFirst();
         }
+    }
 
-        board.nextTurn();
+    //an update as pushed to the players and returned by getBoardSince
+    static JsonObject update(int fromX, int fromY, int toX, int toY, String promotionFigure, boolean gameOver, String message, int sequence) {
+        JsonObject json = new JsonObject();
+        json.addProperty("fromX", fromX);
+        json.addProperty("fromY", fromY);
+        json.addProperty("toX", toX);
+        json.addProperty("toY", toY);
+        json.addProperty("promotionFigure", promotionFigure);
+        json.addProperty("gameOver", gameOver);
+        json.addProperty("message", message);
+        json.addProperty("sequence", sequence);
+        return json;
+    }
 
-        blackPlayer.updateGame(fromX, fromY, toX, toY, isPromotion ? promotionFigure : "", isFinished(), board.getCurrentMessage());
-        whitePlayer.updateGame(fromX, fromY, toX, toY, isPromotion ? promotionFigure : "", isFinished(), board.getCurrentMessage());
+    private int getPromotionType(Color color, String promotionFigure) throws IllegalMoveException {
+        try {
+            int type = FigureFactory.getFigure(color, promotionFigure).getType();
+            if (type != Position.PAWN && type != Position.KING) {
+                return type;
+            }
+        } catch (IllegalArgumentException e) {
+            // handled below
+        }
+        throw new IllegalMoveException("Cannot promote to \"" + promotionFigure + "\"");
     }
 
     public JsonObject getBoard() {
-        return boardLoader.getCurrentBoard(board);
+        JsonObject json = boardLoader.getCurrentBoard(board);
+        json.addProperty("sequence", sequence);
+        return json;
+    }
+
+    //the updates after the given sequence number, or the whole board if they are no longer kept
+    //or the client knows a sequence number the game never had
+    public JsonObject getBoardSince(int since) {
+        if (since > sequence || since < sequence - history.size()) {
+            return getBoard();
+        }
+        JsonArray moves = new JsonArray();
+        for (JsonObject update : history) {
+            if (update.get("sequence").getAsInt() > since) {
+                moves.add(update);
+            }
+        }
+        JsonObject json = new JsonObject();
+        json.addProperty("sequence", sequence);
+        json.add("moves", moves);
+        return json;
+    }
+
+    public int getSequence() {
+        return sequence;
+    }
+
+    //keeps the colors of a game of the journal for the players that had joined it
+    public void reserve(String whiteId, String blackId) {
+        this.whiteId = whiteId;
+        this.blackId = blackId;
     }
 
     public Color join(IPlayer player) throws PlayerException {
-        if (whitePlayer == null) {
+        if (whitePlayer == null && (whiteId == null || whiteId.equals(player.getId()))) {
             whitePlayer = player;
+            whiteId = null;
             startGame();
             messagePlayers("White player has joined");
             return Color.WHITE;
         }
-        if (blackPlayer == null) {
+        if (blackPlayer == null && (blackId == null || blackId.equals(player.getId()))) {
             blackPlayer = player;
+            blackId = null;
             startGame();
             messagePlayers("Black player has joined");
             return Color.BLACK;
         }
+        if (whitePlayer == null || blackPlayer == null) {
+            throw new PlayerException("The players of this game have not joined again yet");
+        }
         throw new PlayerException("Both players have already joined");
     }
 
+    //id of the player with the color, or of the player the color is kept for
+    public String getPlayerId(Color color) {
+        if (color == Color.WHITE) {
+            return whitePlayer != null ? whitePlayer.getId() : whiteId;
+        }
+        return blackPlayer != null ? blackPlayer.getId() : blackId;
+    }
+
     public void leave(IPlayer player) {
         if (whitePlayer != null && Objects.equals(whitePlayer.getId(), player.getId())) {
             whitePlayer = null;
@@ -135,7 +258,11 @@ public class ChessGame {
         return whitePlayer == null && blackPlayer == null;
     }
 
+    //a game restored from the journal starts once both of its players have joined again
     private void startGame() {
+        if (whitePlayer == null || blackPlayer == null) {
+            return;
+        }
         whitePlayer.startGame();
         blackPlayer.startGame();
     }
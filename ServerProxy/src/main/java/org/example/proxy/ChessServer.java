@@ -6,63 +6,219 @@ import org.example.exceptions.IllegalMoveException;
 import org.example.exceptions.JsonException;
 import org.example.exceptions.PlayerException;
 import org.example.game.Color;
-import org.example.utils.RandomStringGenerator;
+import org.example.game.MoveList;
+import org.example.game.PositionCache;
+import org.example.utils.IdAllocator;
+import org.example.utils.Mailbox;
 
-import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
 
+//every game is an actor: its operations are queued in the mailbox of the game and run one after the other on a few
+//threads shared by all games, so the state of a game is only touched by one thread at a time without a lock, and a busy
+//game holds up no thread of another one. The calls return futures that the game completes, failed with the
+//exception of the operation. A game is only removed from the registry by one of its own operations, so an operation
+//never acts on a game that has already been removed. With a journal the games are written ahead to it and the calls
+//complete once their records are on disk, the games of the journal are running again when the server starts
 public class ChessServer implements IChessServer {
-    private final Map<String, ChessGame> games = new HashMap<>();
+    private static final int POSITION_CACHE_SIZE = 1 << 16;
+    private static final CompletableFuture<Void> DONE = CompletableFuture.completedFuture(null);
+    //a game of the journal that none of its players joined again by then is removed, or it would be compacted forever
+    static final long RECLAIM_SECONDS = 600;
 
-    @Override
-    public String createGame(IPlayer player, Color color) throws JsonException {
-        String id;
-        do {
-            id = RandomStringGenerator.generateRandomString(6);
-        } while (games.containsKey(id));
-        ChessGame game = new ChessGame(id, player, color);
-        String gameId = game.getId();
-        games.put(gameId, game);
-        player.setCurrentGame(game);
-        return gameId;
+    private final Map<String, Actor> games = new ConcurrentHashMap<>();
+    //all games share the legal moves of positions they have in common, e.g. the openings
+    private final PositionCache positionCache;
+    private final Executor executor;
+    //continues after the ids of the journal, so a restored game never gets the id of a new one
+    private final IdAllocator ids;
+    //may be null, then nothing is written ahead
+    private final Journal journal;
+
+    private static final class Actor {
+        private final ChessGame game;
+        private final Mailbox mailbox;
+
+        private Actor(ChessGame game, Mailbox mailbox) {
+            this.game = game;
+            this.mailbox = mailbox;
+        }
     }
 
-    @Override
-    public Color joinGame(IPlayer player, String gameId) throws GameException, PlayerException {
-        ChessGame game = getGame(gameId);
-        player.setCurrentGame(game);
-        return game.join(player);
+    public ChessServer() {
+        this(new PositionCache(POSITION_CACHE_SIZE));
     }
 
-    @Override
-    public void leaveGame(IPlayer player, String gameId) throws GameException {
-        ChessGame game = getGame(gameId);
-        game.leave(player);
+    public ChessServer(Journal journal) {
+        this(new PositionCache(POSITION_CACHE_SIZE), defaultExecutor(), journal);
+    }
+
+    public ChessServer(PositionCache positionCache) {
+        this(positionCache, defaultExecutor());
+    }
+
+    public ChessServer(PositionCache positionCache, Executor executor) {
+        this(positionCache, executor, null);
+    }
+
+    public ChessServer(PositionCache positionCache, Executor executor, Journal journal) {
+        this(positionCache, executor, journal, RECLAIM_SECONDS, TimeUnit.SECONDS);
+    }
+
+    public ChessServer(PositionCache positionCache, Executor executor, Journal journal, long reclaimTimeout, TimeUnit unit) {
+        this.positionCache = positionCache;
+        this.executor = executor;
+        this.journal = journal;
+        this.ids = journal == null ? new IdAllocator() : journal.getIds();
+        if (journal != null) {
+            Executor reclaimed = CompletableFuture.delayedExecutor(reclaimTimeout, unit, executor);
+            journal.getGames().forEach((gameId, game) -> restore(gameId, game, reclaimed));
+        }
+    }
+
+    //one thread per core, the games do not block, pushes to the players are queued
+    private static Executor defaultExecutor() {
+        return new ForkJoinPool(Runtime.getRuntime().availableProcessors(),
+                ForkJoinPool.defaultForkJoinWorkerThreadFactory, null, true);
+    }
+
+    //a game of the journal is running again without players until they join it, a game that cannot be replayed is removed
+    private void restore(String gameId, Journal.Game restored, Executor reclaimed) {
+        try {
+            ChessGame game = new ChessGame(gameId, positionCache);
+            MoveList moves = restored.getMoves();
+            for (int i = 0; i < moves.size(); i++) {
+                game.replay(moves.get(i));
+            }
+            if (!game.isFinished()) {
+                game.reserve(restored.getPlayerId(Color.WHITE), restored.getPlayerId(Color.BLACK));
+                games.put(gameId, new Actor(game, new Mailbox(executor)));
+                reclaimed.execute(() -> ask(gameId, this::expire));
+                return;
+            }
+        } catch (JsonException | IllegalMoveException e) {
+            System.out.println("Could not restore game " + gameId + ": " + e.getMessage());
+        }
+        journal.remove(gameId);
+    }
+
+    private CompletableFuture<Void> expire(ChessGame game) {
         if (game.isEmpty()) {
-            games.remove(gameId);
+            System.out.println("Game " + game.getId() + " was not joined again");
+            return remove(game.getId());
         }
+        return DONE;
     }
 
     @Override
-    public void movePiece(IPlayer player, String gameId, int fromX, int fromY, int toX, int toY, String promotionFigure) throws GameException, PlayerException, IllegalMoveException {
-        ChessGame game = getGame(gameId);
-        game.movePiece(player, fromX, fromY, toX, toY, promotionFigure);
-        if (game.isFinished()) {
-            games.remove(gameId);
+    public CompletableFuture<String> createGame(IPlayer player, Color color) {
+        if (journal != null && journal.isFailed()) {
+            return CompletableFuture.failedFuture(new GameException("Games cannot be saved anymore"));
+        }
+        String id = ids.next();
+        Actor actor;
+        try {
+            actor = new Actor(new ChessGame(id, player, color, positionCache), new Mailbox(executor));
+        } catch (JsonException e) {
+            return CompletableFuture.failedFuture(e);
         }
+        //the game is created in the journal before any of its moves can be
+        CompletableFuture<Void> journaled = journal == null ? DONE
+                : journal.create(id, actor.game.getPlayerId(Color.WHITE), actor.game.getPlayerId(Color.BLACK));
+        games.put(id, actor);
+        player.setCurrentGame(actor.game);
+        return journaled.thenApply(v -> id);
     }
 
     @Override
-    public JsonObject getBoard(String gameId) throws GameException {
-        ChessGame game = getGame(gameId);
-        return game.getBoard();
+    public CompletableFuture<Color> joinGame(IPlayer player, String gameId) {
+        return ask(gameId, game -> {
+            Color color = game.join(player);
+            player.setCurrentGame(game);
+            return players(game).thenApply(v -> color);
+        }).thenCompose(journaled -> journaled);
+    }
+
+    @Override
+    public CompletableFuture<Void> leaveGame(IPlayer player, String gameId) {
+        return ask(gameId, game -> {
+            game.leave(player);
+            if (game.isEmpty()) {
+                return remove(gameId);
+            }
+            return players(game);
+        }).thenCompose(journaled -> journaled);
+    }
+
+    @Override
+    public CompletableFuture<Void> movePiece(IPlayer player, String gameId, int fromX, int fromY, int toX, int toY, String promotionFigure) {
+        return ask(gameId, game -> {
+            //a move that cannot be saved is not played either
+            if (journal != null && journal.isFailed()) {
+                throw new GameException("Game with id " + gameId + " cannot be saved anymore");
+            }
+            int move = game.movePiece(player, fromX, fromY, toX, toY, promotionFigure);
+            CompletableFuture<Void> journaled = journal == null ? DONE : journal.move(gameId, game.getSequence(), move);
+            if (game.isFinished()) {
+                //the removal is written together with or after the move
+                journaled = remove(gameId);
+            }
+            return journaled;
+        }).thenCompose(journaled -> journaled);
+    }
+
+    @Override
+    public CompletableFuture<JsonObject> getBoard(String gameId) {
+        return ask(gameId, ChessGame::getBoard);
+    }
+
+    @Override
+    public CompletableFuture<JsonObject> getBoardSince(String gameId, int sequence) {
+        return ask(gameId, game -> game.getBoardSince(sequence));
+    }
+
+    //the players are written after every join and leave, so a restored game keeps its colors for them
+    private CompletableFuture<Void> players(ChessGame game) {
+        return journal == null ? DONE
+                : journal.players(game.getId(), game.getPlayerId(Color.WHITE), game.getPlayerId(Color.BLACK));
+    }
+
+    private CompletableFuture<Void> remove(String gameId) {
+        games.remove(gameId);
+        return journal == null ? DONE : journal.remove(gameId);
+    }
+
+    public PositionCache getPositionCache() {
+        return positionCache;
     }
 
     public ChessGame getGame(String gameId) throws GameException {
-        ChessGame game = games.get(gameId);
-        if (game == null) {
+        Actor actor = games.get(gameId);
+        if (actor == null) {
             throw new GameException("Game with id " + gameId + " does not exist");
         }
-        return game;
+        return actor.game;
+    }
+
+    private interface Operation<T> {
+        T apply(ChessGame game) throws GameException, PlayerException, IllegalMoveException;
+    }
+
+    //queues the operation in the mailbox of the game, a game removed before the operation runs does not exist anymore
+    private <T> CompletableFuture<T> ask(String gameId, Operation<T> operation) {
+        Actor actor = games.get(gameId);
+        if (actor == null) {
+            return CompletableFuture.failedFuture(new GameException("Game with id " + gameId + " does not exist"));
+        }
+        return actor.mailbox.submit(() -> {
+            if (games.get(gameId) != actor) {
+                throw new GameException("Game with id " + gameId + " does not exist");
+            }
+            return operation.apply(actor.game);
+        });
     }
 }
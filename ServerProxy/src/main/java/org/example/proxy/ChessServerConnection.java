@@ -0,0 +1,324 @@
+package org.example.proxy;
+
+import org.example.RPC.RpcCodec;
+import org.example.RPC.RpcHandshake;
+import org.example.RPC.RpcMessage;
+import org.example.exceptions.PlayerException;
+import org.example.game.Color;
+import org.example.proxy.ChessServerProxy.Protocol;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.CancelledKeyException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+//non-blocking counterpart of ChessServerProxy: speaks the same protocol, but is driven by an EventLoop
+//and keeps the state of the conversation between the frames instead of blocking on a reader
+public class ChessServerConnection {
+    private enum State {
+        REQUEST, PLAYER_ID, CONNECTION_INFORMATION
+    }
+
+    private final SocketChannel channel;
+    private final SelectionKey key;
+    private final IChessServer chessServer;
+    //shared by all connections of the server
+    private final QueuedPlayer.Overflow overflow;
+    private final Heartbeat heartbeat;
+    private final RpcCodec codec = new RpcCodec();
+    //players of other connections push to this one, so the output is written by more than the loop thread
+    private final Queue<ByteBuffer> output = new ArrayDeque<>();
+    private final ReentrantLock outputLock = new ReentrantLock();
+
+    private final Map<String, QueuedPlayer> connectedPlayers = new ConcurrentHashMap<>();
+    private final Map<Integer, PlayerChannelProxy> channels = new ConcurrentHashMap<>();
+    private final Map<String, Heartbeat.Beat> beats = new ConcurrentHashMap<>();
+
+    private State state = State.REQUEST;
+    //legacy clients read the protocol offer before every request
+    private boolean banner = true;
+    //pushes go to the players on channels of this connection instead of dialing back
+    private boolean mux = false;
+    //requests are numbered and name their player themselves
+    private boolean pipeline = false;
+    //request waiting for the player information of the client
+    private RpcMessage request;
+    //number of the request being handled, its response carries it
+    private int requestId = 0;
+    private String playerId;
+
+    ChessServerConnection(SocketChannel channel, SelectionKey key, IChessServer chessServer,
+                          QueuedPlayer.Overflow overflow, Heartbeat heartbeat) {
+        this.channel = channel;
+        this.key = key;
+        this.chessServer = chessServer;
+        this.overflow = overflow;
+        this.heartbeat = heartbeat;
+    }
+
+    void open() throws IOException {
+        send(new RpcMessage(999, Protocol.getProtocol()));
+    }
+
+    //reads what the channel has got into the buffer of the event loop and handles all complete frames
+    void read(ByteBuffer buffer) throws IOException {
+        buffer.clear();
+        if (channel.read(buffer) < 0) {
+            close();
+            return;
+        }
+        //any traffic shows that the client of the players is alive
+        beats.values().forEach(Heartbeat.Beat::touch);
+        buffer.flip();
+        RpcMessage message;
+        while (channel.isOpen() && (message = codec.decode(buffer)) != null) {
+            receive(message);
+        }
+    }
+
+    private void receive(RpcMessage message) throws IOException {
+        if (message.getChannel() != 0) {
+            PlayerChannelProxy player = channels.get(message.getChannel());
+            if (player != null) {
+                player.receive(message);
+            }
+            return;
+        }
+        switch (state) {
+            case REQUEST -> {
+                Protocol protocol = Protocol.fromOrdinal(message.getCode());
+                requestId = message.getRequestId();
+                switch (protocol) {
+                    case GET_BOARD -> respond(getBoard(message));
+                    case GET_BOARD_SINCE -> respond(getBoardSince(message));
+                    case END_CONNECTION -> close();
+                    case HANDSHAKE -> handshake(message);
+                    default -> {
+                        request = message;
+                        if (pipeline) {
+                            //the player of a pipelined request is its last but one argument, the channel of the player the last
+                            int count = message.getArgCount();
+                            try {
+                                respond(execute(request, channelPlayer(message.getArg(count - 2), message.getInt(count - 1))));
+                            } catch (PlayerException e) {
+                                respond(CompletableFuture.failedFuture(e));
+                            }
+                            return;
+                        }
+                        state = State.PLAYER_ID;
+                        send(new RpcMessage(999, mux ? "USER_INFORMATION 0: <id>,<channel>" : "USER_INFORMATION 0: <id>"));
+                    }
+                }
+            }
+            case PLAYER_ID -> {
+                if (mux) {
+                    //the client names the channel of a new player along with its id, a channel that is refused is
+                    //answered with the error, and so is the request
+                    IPlayer player;
+                    try {
+                        player = channelPlayer(message.getArg(0), message.getInt(1));
+                    } catch (PlayerException e) {
+                        send(ChessServerProxy.failure(e));
+                        respond(CompletableFuture.failedFuture(e));
+                        return;
+                    }
+                    send(new RpcMessage(0, "success"));
+                    respond(execute(request, player));
+                    return;
+                }
+                playerId = message.getMessage();
+                IPlayer player = connectedPlayers.get(playerId);
+                if (player != null) {
+                    send(new RpcMessage(0, "success"));
+                    respond(execute(request, player));
+                    return;
+                }
+                state = State.CONNECTION_INFORMATION;
+                send(new RpcMessage(999, "CONNECTION_INFORMATION 0: <ip>,<port>"));
+            }
+            case CONNECTION_INFORMATION -> {
+                //dialing back and the handshake block, so they run on a virtual thread and the loop goes on with the others
+                String host = message.getArg(0);
+                int port = message.getInt(1);
+                String id = playerId;
+                RpcMessage dialed = request;
+                respond(CompletableFuture.supplyAsync(() -> {
+                    try {
+                        return PlayerClientProxy.connect(host, port, id, ChessServerProxy.DIAL_BACK_TIMEOUT_MILLIS);
+                    } catch (IOException e) {
+                        throw new CompletionException(e);
+                    }
+                }, Thread::startVirtualThread).thenCompose(client -> {
+                    QueuedPlayer player = watch(client);
+                    connectedPlayers.put(id, player);
+                    return execute(dialed, player);
+                }));
+            }
+        }
+    }
+
+    //the answer is the last text frame, everything after it uses the agreed features
+    private void handshake(RpcMessage message) throws IOException {
+        RpcHandshake handshake = RpcHandshake.accept(message,
+                RpcHandshake.BINARY, RpcHandshake.NO_BANNER, RpcHandshake.MUX, RpcHandshake.PIPELINE);
+        send(handshake.answer());
+        codec.setBinary(handshake.has(RpcHandshake.BINARY));
+        banner = !handshake.has(RpcHandshake.NO_BANNER);
+        mux = handshake.has(RpcHandshake.MUX);
+        pipeline = handshake.has(RpcHandshake.PIPELINE);
+        offer();
+    }
+
+    //answers the request and offers the protocol for the next one once the game has run it, the loop goes on with the
+    //next frames in the meantime; only pipelining clients send them before the answer
+    private void respond(CompletableFuture<RpcMessage> response) {
+        int id = requestId;
+        request = null;
+        state = State.REQUEST;
+        response.exceptionally(ChessServerProxy::failure).thenAccept(msg -> {
+            push(msg.forRequest(id));
+            offer();
+        });
+    }
+
+    private void offer() {
+        if (banner) {
+            push(new RpcMessage(999, Protocol.getProtocol()));
+        }
+    }
+
+    //channel 0 is the conversation of the connection itself, and a channel belongs to one player
+    private IPlayer channelPlayer(String playerId, int channel) throws PlayerException {
+        PlayerChannelProxy owner = channels.get(channel);
+        if (channel <= 0 || owner != null && !owner.getId().equals(playerId)) {
+            throw new PlayerException("Channel " + channel + " cannot be used by player " + playerId);
+        }
+        return connectedPlayers.computeIfAbsent(playerId, id -> {
+            PlayerChannelProxy channelPlayer = new PlayerChannelProxy(id, channel, this::push);
+            channels.put(channelPlayer.getChannel(), channelPlayer);
+            return watch(channelPlayer);
+        });
+    }
+
+    private CompletableFuture<RpcMessage> execute(RpcMessage request, IPlayer player) {
+        return switch (Protocol.fromOrdinal(request.getCode())) {
+            case MOVE_PIECE -> chessServer.movePiece(
+                    player,
+                    request.getArg(0),
+                    request.getInt(1),
+                    request.getInt(2),
+                    request.getInt(3),
+                    request.getInt(4),
+                    request.getArg(5)
+            ).thenApply(v -> new RpcMessage(0, "success"));
+            case CREATE_GAME -> chessServer.createGame(player, Color.valueOf(request.getArg(0)))
+                    .thenApply(gameId -> new RpcMessage(0, gameId));
+            case JOIN_GAME -> chessServer.joinGame(player, request.getArg(0))
+                    .thenApply(color -> new RpcMessage(0, color.toString()));
+            case LEAVE_GAME -> chessServer.leaveGame(player, request.getArg(0))
+                    .thenApply(v -> new RpcMessage(0, "success"));
+            default -> CompletableFuture.completedFuture(new RpcMessage(0, "success"));
+        };
+    }
+
+    private CompletableFuture<RpcMessage> getBoard(RpcMessage message) {
+        return chessServer.getBoard(message.getArg(0)).thenApply(board -> new RpcMessage(0, board.toString()));
+    }
+
+    private CompletableFuture<RpcMessage> getBoardSince(RpcMessage message) {
+        return chessServer.getBoardSince(message.getArg(0), message.getInt(1))
+                .thenApply(board -> new RpcMessage(0, board.toString()));
+    }
+
+    private void send(RpcMessage message) throws IOException {
+        ByteBuffer buffer = codec.encode(message);
+        outputLock.lock();
+        try {
+            output.add(buffer);
+            flush();
+        } finally {
+            outputLock.unlock();
+        }
+    }
+
+    //sends for a player on a channel, called by any thread
+    private void push(RpcMessage message) {
+        try {
+            send(message);
+        } catch (IOException | CancelledKeyException e) {
+            //the loop notices the broken channel on its next read
+        }
+    }
+
+    //writes as much of the output as the socket takes, the rest is written once the channel is writable again
+    void flush() throws IOException {
+        outputLock.lock();
+        try {
+            while (!output.isEmpty()) {
+                ByteBuffer buffer = output.peek();
+                channel.write(buffer);
+                if (buffer.hasRemaining()) {
+                    key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+                    //the loop may already be waiting without interest in writing
+                    key.selector().wakeup();
+                    return;
+                }
+                output.poll();
+            }
+            if (key.isValid()) {
+                key.interestOps(SelectionKey.OP_READ);
+            }
+        } finally {
+            outputLock.unlock();
+        }
+    }
+
+    void close() {
+        if (!channel.isOpen()) {
+            return;
+        }
+        for (IPlayer player : connectedPlayers.values()) {
+            ChessGame game = player.currentGame();
+            if (game != null) {
+                chessServer.leaveGame(player, game.getId());
+            }
+        }
+        try {
+            channel.close();
+        } catch (IOException e) {
+            // Ignore
+        }
+        beats.values().forEach(Heartbeat.Beat::cancel);
+        channels.values().forEach(PlayerChannelProxy::close);
+        connectedPlayers.values().forEach(QueuedPlayer::close);
+    }
+
+    //queues the pushes to the player and watches it with the heartbeat of the server
+    private QueuedPlayer watch(IPlayer player) {
+        QueuedPlayer queued = QueuedPlayer.start(player, QueuedPlayer.CAPACITY, overflow, this::expired);
+        beats.put(player.getId(), heartbeat.register(queued, this::expired));
+        return queued;
+    }
+
+    //called by the heartbeat or the queue of a slow consumer, not by the event loop, for a player that stopped answering
+    private void expired(QueuedPlayer player) {
+        ChessGame game = player.currentGame();
+        if (game != null) {
+            chessServer.leaveGame(player, game.getId());
+        }
+        connectedPlayers.remove(player.getId(), player);
+        Heartbeat.Beat beat = beats.remove(player.getId());
+        if (beat != null) {
+            beat.cancel();
+        }
+        player.close();
+    }
+}
@@ -1,5 +1,6 @@
 package org.example.proxy;
 
+import org.example.RPC.RpcHandshake;
 import org.example.RPC.RpcMessage;
 import org.example.RPC.RpcReader;
 import org.example.RPC.RpcWriter;
@@ -10,27 +11,42 @@ import org.example.exceptions.PlayerException;
 import org.example.game.Color;
 
 import java.io.IOException;
-import java.io.InputStreamReader;
-import java.io.OutputStreamWriter;
 import java.net.Socket;
-import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class ChessServerProxy implements Runnable {
+    //a client that does not take or answer the connection to its player within this time is given up on
+    static final int DIAL_BACK_TIMEOUT_MILLIS = 5000;
+
     private final Socket socket;
 
     private final IChessServer chessServer;
+    //shared by all connections of the server
+    private final Heartbeat heartbeat;
+    //what happens to the pushes of players that do not keep up
+    private final QueuedPlayer.Overflow overflow;
     private RpcWriter writer;
     private RpcReader reader;
     private boolean running = true;
+    //legacy clients read the protocol offer before every request
+    private boolean banner = true;
+    //pushes go to the players on channels of this connection instead of dialing back
+    private boolean mux = false;
+    //requests are numbered and name their player themselves
+    private boolean pipeline = false;
+    //number of the request being handled, its response carries it
+    private int requestId = 0;
 
-    private final Map<String, IPlayer> connectedPlayers = new HashMap<>();
+    private final Map<String, QueuedPlayer> connectedPlayers = new ConcurrentHashMap<>();
+    private final Map<Integer, PlayerChannelProxy> channels = new ConcurrentHashMap<>();
+    private final Map<String, Heartbeat.Beat> beats = new ConcurrentHashMap<>();
 
-    private enum Protocol {
-        MOVE_PIECE, GET_BOARD, CREATE_GAME, JOIN_GAME, LEAVE_GAME, END_CONNECTION;
+    enum Protocol {
+        MOVE_PIECE, GET_BOARD, CREATE_GAME, JOIN_GAME, LEAVE_GAME, END_CONNECTION, HANDSHAKE, GET_BOARD_SINCE;
 
         public static Protocol fromOrdinal(int i) {
             for (Protocol protocol : Protocol.values()) {
@@ -53,6 +69,8 @@ public class ChessServerProxy implements Runnable {
             return switch (this) {
                 case MOVE_PIECE -> getProtocolBegin() + "<gameId>,<fromX>,<fromY>,<toX>,<toY>,<promotion>";
                 case JOIN_GAME, LEAVE_GAME, GET_BOARD -> getProtocolBegin() + "<gameId>";
+                case HANDSHAKE -> getProtocolBegin() + "<version>,<features>";
+                case GET_BOARD_SINCE -> getProtocolBegin() + "<gameId>,<sequence>";
                 case CREATE_GAME, END_CONNECTION -> getProtocolBegin();
             };
         }
@@ -62,23 +80,25 @@ public class ChessServerProxy implements Runnable {
         }
     }
 
-    public ChessServerProxy(Socket socket, IChessServer chessServer) {
+    public ChessServerProxy(Socket socket, IChessServer chessServer, Heartbeat heartbeat, QueuedPlayer.Overflow overflow) {
         this.socket = socket;
         this.chessServer = chessServer;
+        this.heartbeat = heartbeat;
+        this.overflow = overflow;
     }
 
     @Override
     public void run() {
         try {
-            this.reader = new RpcReader(new InputStreamReader(socket.getInputStream()));
-            this.writer = new RpcWriter(new OutputStreamWriter(socket.getOutputStream()));
-
-            ScheduledExecutorService exec = Executors.newSingleThreadScheduledExecutor();
-            exec.scheduleAtFixedRate(this::stillAlive, 0, 3, TimeUnit.SECONDS);
+            this.reader = new RpcReader(socket.getInputStream());
+            this.writer = new RpcWriter(socket.getOutputStream());
 
             while (running) {
-                writer.sendMessage(999, Protocol.getProtocol());
-                var message = reader.readRpcMessage();
+                if (banner) {
+                    writer.sendMessage(999, Protocol.getProtocol());
+                }
+                var message = read();
+                requestId = message.getRequestId();
                 switch (Protocol.fromOrdinal(message.getCode())) {
                     case MOVE_PIECE -> movePiece(message);
                     case GET_BOARD -> getBoard(message);
@@ -86,122 +106,214 @@ public class ChessServerProxy implements Runnable {
                     case CREATE_GAME -> createGame(message);
                     case END_CONNECTION -> endConnection();
                     case LEAVE_GAME -> leave(message);
+                    case HANDSHAKE -> handshake(message);
+                    case GET_BOARD_SINCE -> getBoardSince(message);
                 }
             }
         } catch (IOException e) {
             throw new RuntimeException(e);
+        } finally {
+            //the players of a connection that was ended or dropped leave their games like those that expired
+            List.copyOf(connectedPlayers.values()).forEach(this::expired);
+            beats.values().forEach(Heartbeat.Beat::cancel);
+            channels.values().forEach(PlayerChannelProxy::close);
         }
     }
 
-    public void endConnection() throws IOException {
-        this.running = false;
-        for(IPlayer player : connectedPlayers.values()) {
-            try {
-                chessServer.leaveGame(player, player.currentGame().getId());
-            } catch (GameException | PlayerException e) {
-                // Ignore
+    //the next frame of the conversation, answers of the players on other channels are handed to them on the way;
+    //any frame shows that the client of the players is alive
+    private RpcMessage read() throws IOException {
+        RpcMessage message = reader.readRpcMessage();
+        beats.values().forEach(Heartbeat.Beat::touch);
+        while (message.getChannel() != 0) {
+            PlayerChannelProxy player = channels.get(message.getChannel());
+            if (player != null) {
+                player.receive(message);
             }
+            message = reader.readRpcMessage();
+            beats.values().forEach(Heartbeat.Beat::touch);
         }
+        return message;
+    }
+
+    //the players leave their games once the loop has ended
+    public void endConnection() throws IOException {
+        this.running = false;
         socket.close();
     }
 
     public void movePiece(RpcMessage message) {
         try {
-            chessServer.movePiece(
-                    getPlayer(),
+            respond(chessServer.movePiece(
+                    getPlayer(message),
                     message.getArg(0),
-                    Integer.parseInt(message.getArg(1)),
-                    Integer.parseInt(message.getArg(2)),
-                    Integer.parseInt(message.getArg(3)),
-                    Integer.parseInt(message.getArg(4)),
+                    message.getInt(1),
+                    message.getInt(2),
+                    message.getInt(3),
+                    message.getInt(4),
                     message.getArg(5)
-            );
-            writer.sendSuccess();
-        } catch (IllegalMoveException e) {
-            writer.sendMessage(e.getErrorCode(), e.getMessage());
-        } catch (GameException e) {
-            writer.sendMessage(e.getErrorCode(), e.getMessage());
-        } catch (PlayerException e) {
-            writer.sendMessage(e.getErrorCode(), e.getMessage());
+            ).thenApply(v -> new RpcMessage(0, "success")));
         } catch (IOException e) {
-            writer.sendMessage(5, e.getMessage());
+            respond(5, e.getMessage());
+        } catch (PlayerException e) {
+            respond(e.getErrorCode(), e.getMessage());
         }
     }
 
+    //the answer is the last text frame, everything after it uses the agreed features
+    public void handshake(RpcMessage message) {
+        RpcHandshake handshake = RpcHandshake.accept(message,
+                RpcHandshake.BINARY, RpcHandshake.NO_BANNER, RpcHandshake.MUX, RpcHandshake.PIPELINE);
+        writer.sendRpcMessage(handshake.answer());
+        reader.setBinary(handshake.has(RpcHandshake.BINARY));
+        writer.setBinary(handshake.has(RpcHandshake.BINARY));
+        banner = !handshake.has(RpcHandshake.NO_BANNER);
+        mux = handshake.has(RpcHandshake.MUX);
+        pipeline = handshake.has(RpcHandshake.PIPELINE);
+    }
+
     public void getBoard(RpcMessage message) {
-        try {
-            writer.sendRpcMessage(new RpcMessage(0, chessServer.getBoard(message.getArg(0)).toString()));
-        } catch (GameException e) {
-            writer.sendMessage(e.getErrorCode(), e.getMessage());
-        }
+        respond(chessServer.getBoard(message.getArg(0)).thenApply(board -> new RpcMessage(0, board.toString())));
+    }
+
+    public void getBoardSince(RpcMessage message) {
+        respond(chessServer.getBoardSince(message.getArg(0), message.getInt(1))
+                .thenApply(board -> new RpcMessage(0, board.toString())));
     }
 
     public void createGame(RpcMessage message) {
         try {
-            String gameId = chessServer.createGame(getPlayer(), Color.valueOf(message.getArg(0)));
-            writer.sendMessage(0, gameId);
-        } catch (JsonException e) {
-            writer.sendMessage(e.getErrorCode(), e.getMessage());
+            respond(chessServer.createGame(getPlayer(message), Color.valueOf(message.getArg(0)))
+                    .thenApply(gameId -> new RpcMessage(0, gameId)));
         } catch (IOException e) {
-            writer.sendMessage(5, e.getMessage());
+            respond(5, e.getMessage());
+        } catch (PlayerException e) {
+            respond(e.getErrorCode(), e.getMessage());
         }
     }
 
     public void join(RpcMessage message) {
         try {
-            Color color = chessServer.joinGame(getPlayer(), message.getArg(0));
-            writer.sendMessage(0, color.toString());
-        } catch (GameException e) {
-            writer.sendMessage(e.getErrorCode(), e.getMessage());
-        } catch (PlayerException e) {
-            writer.sendMessage(e.getErrorCode(), e.getMessage());
+            respond(chessServer.joinGame(getPlayer(message), message.getArg(0))
+                    .thenApply(color -> new RpcMessage(0, color.toString())));
         } catch (IOException e) {
-            writer.sendMessage(5, e.getMessage());
+            respond(5, e.getMessage());
+        } catch (PlayerException e) {
+            respond(e.getErrorCode(), e.getMessage());
         }
     }
 
     public void leave(RpcMessage message) {
         try {
-            chessServer.leaveGame(getPlayer(), message.getArg(0));
-            writer.sendSuccess();
-        } catch (GameException e) {
-            writer.sendMessage(e.getErrorCode(), e.getMessage());
-        } catch (PlayerException e) {
-            writer.sendMessage(e.getErrorCode(), e.getMessage());
+            respond(chessServer.leaveGame(getPlayer(message), message.getArg(0)).thenApply(v -> new RpcMessage(0, "success")));
         } catch (IOException e) {
-            writer.sendMessage(5, e.getMessage());
+            respond(5, e.getMessage());
+        } catch (PlayerException e) {
+            respond(e.getErrorCode(), e.getMessage());
         }
     }
 
-    private IPlayer getPlayer() throws IOException {
+    private void respond(int code, String msg) {
+        writer.sendRpcMessage(new RpcMessage(code, msg).forRequest(requestId));
+    }
+
+    //a pipelined request is answered once its game has run it, while the next requests are read already, on a virtual
+    //thread so a slow client does not hold up the threads of the games; other clients read the answer before the
+    //protocol is offered again, so it is waited for
+    private void respond(CompletableFuture<RpcMessage> response) {
+        int id = requestId;
+        CompletableFuture<RpcMessage> answered = response.exceptionally(ChessServerProxy::failure)
+                .thenApply(msg -> msg.forRequest(id));
+        if (pipeline) {
+            answered.thenAcceptAsync(writer::sendRpcMessage, Thread::startVirtualThread);
+        } else {
+            writer.sendRpcMessage(answered.join());
+        }
+    }
+
+    //the answer to an operation that failed with the exception of its game
+    static RpcMessage failure(Throwable e) {
+        Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+        return switch (cause) {
+            case IllegalMoveException illegalMove -> new RpcMessage(illegalMove.getErrorCode(), illegalMove.getMessage());
+            case GameException game -> new RpcMessage(game.getErrorCode(), game.getMessage());
+            case PlayerException player -> new RpcMessage(player.getErrorCode(), player.getMessage());
+            case JsonException json -> new RpcMessage(json.getErrorCode(), json.getMessage());
+            default -> new RpcMessage(5, cause.getMessage());
+        };
+    }
+
+    //the player of a pipelined request is its last but one argument, the channel of the player the last
+    private IPlayer getPlayer(RpcMessage request) throws IOException, PlayerException {
+        if (pipeline) {
+            int count = request.getArgCount();
+            return getChannelPlayer(request.getArg(count - 2), request.getInt(count - 1));
+        }
+        if (mux) {
+            return getChannelPlayer();
+        }
         writer.sendMessage(999, "USER_INFORMATION 0: <id>");
-        String playerId = reader.readRpcMessage().getMessage();
+        String playerId = read().getMessage();
         if (connectedPlayers.containsKey(playerId)) {
             writer.sendSuccess();
             return connectedPlayers.get(playerId);
         }
         writer.sendMessage(999, "CONNECTION_INFORMATION 0: <ip>,<port>");
-        var connectionInformation = reader.readRpcMessage();
+        var connectionInformation = read();
         String ip = connectionInformation.getArg(0);
-        int port = Integer.parseInt(connectionInformation.getArg(1));
-        IPlayer player = new PlayerClientProxy(new Socket(ip, port), playerId);
+        int port = connectionInformation.getInt(1);
+        QueuedPlayer player = watch(PlayerClientProxy.connect(ip, port, playerId, DIAL_BACK_TIMEOUT_MILLIS));
         connectedPlayers.put(playerId, player);
         return player;
     }
 
-    private void stillAlive() {
-        for (IPlayer player : connectedPlayers.values()) {
-            try {
-                if (!player.stillAlive()) {
-                    ChessGame game = player.currentGame();
-                    if (game != null) {
-                        game.removePlayer(player);
-                    }
-                    connectedPlayers.remove(player.getId());
-                }
-            } catch (IOException e) {
-                connectedPlayers.remove(player.getId());
-            }
+    //the client names the channel of a new player along with its id
+    //a channel that is refused is answered with the error, and so is the request
+    private IPlayer getChannelPlayer() throws IOException, PlayerException {
+        writer.sendMessage(999, "USER_INFORMATION 0: <id>,<channel>");
+        RpcMessage playerInformation = read();
+        IPlayer player;
+        try {
+            player = getChannelPlayer(playerInformation.getArg(0), playerInformation.getInt(1));
+        } catch (PlayerException e) {
+            writer.sendRpcMessage(failure(e));
+            throw e;
+        }
+        writer.sendSuccess();
+        return player;
+    }
+
+    //channel 0 is the conversation of the connection itself, and a channel belongs to one player
+    private IPlayer getChannelPlayer(String playerId, int channel) throws PlayerException {
+        PlayerChannelProxy owner = channels.get(channel);
+        if (channel <= 0 || owner != null && !owner.getId().equals(playerId)) {
+            throw new PlayerException("Channel " + channel + " cannot be used by player " + playerId);
+        }
+        return connectedPlayers.computeIfAbsent(playerId, id -> {
+            PlayerChannelProxy channelPlayer = new PlayerChannelProxy(id, channel, writer::sendRpcMessage);
+            channels.put(channelPlayer.getChannel(), channelPlayer);
+            return watch(channelPlayer);
+        });
+    }
+
+    //queues the pushes to the player and watches it with the heartbeat
+    private QueuedPlayer watch(IPlayer player) {
+        QueuedPlayer queued = QueuedPlayer.start(player, QueuedPlayer.CAPACITY, overflow, this::expired);
+        beats.put(player.getId(), heartbeat.register(queued, this::expired));
+        return queued;
+    }
+
+    //called by the heartbeat for a player that stopped answering, or by the queue of a slow consumer
+    private void expired(QueuedPlayer player) {
+        ChessGame game = player.currentGame();
+        if (game != null) {
+            chessServer.leaveGame(player, game.getId());
+        }
+        connectedPlayers.remove(player.getId(), player);
+        Heartbeat.Beat beat = beats.remove(player.getId());
+        if (beat != null) {
+            beat.cancel();
         }
+        player.close();
     }
 }
@@ -0,0 +1,115 @@
+package org.example.proxy;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+//a single thread serving the connections registered with its selector
+public class EventLoop implements Runnable {
+    private final Selector selector;
+    private final IChessServer chessServer;
+    private final QueuedPlayer.Overflow overflow;
+    private final Heartbeat heartbeat;
+    //channels accepted by the server that still have to be registered by the loop thread
+    private final Queue<SocketChannel> pending = new ConcurrentLinkedQueue<>();
+    //shared by all connections of the loop, each read is decoded before the next one
+    private final ByteBuffer readBuffer = ByteBuffer.allocateDirect(16 * 1024);
+    private volatile boolean running = true;
+
+    EventLoop(IChessServer chessServer, QueuedPlayer.Overflow overflow, Heartbeat heartbeat) throws IOException {
+        this.selector = Selector.open();
+        this.chessServer = chessServer;
+        this.overflow = overflow;
+        this.heartbeat = heartbeat;
+    }
+
+    void register(SocketChannel channel) {
+        pending.add(channel);
+        selector.wakeup();
+    }
+
+    //the loop thread closes the connections it serves and then the selector
+    void close() {
+        running = false;
+        selector.wakeup();
+    }
+
+    @Override
+    public void run() {
+        try {
+            while (running) {
+                selector.select();
+                registerPending();
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    handle(key);
+                }
+            }
+            for (SelectionKey key : List.copyOf(selector.keys())) {
+                if (key.attachment() instanceof ChessServerConnection connection) {
+                    connection.close();
+                }
+            }
+            SocketChannel channel;
+            while ((channel = pending.poll()) != null) {
+                closeQuietly(channel);
+            }
+            selector.close();
+        } catch (IOException | ClosedSelectorException e) {
+            // selector closed, the server is shutting down
+        }
+    }
+
+    private void registerPending() {
+        SocketChannel channel;
+        while ((channel = pending.poll()) != null) {
+            ChessServerConnection connection = null;
+            try {
+                channel.configureBlocking(false);
+                SelectionKey key = channel.register(selector, SelectionKey.OP_READ);
+                connection = new ChessServerConnection(channel, key, chessServer, overflow, heartbeat);
+                key.attach(connection);
+                connection.open();
+            } catch (IOException e) {
+                if (connection != null) {
+                    connection.close();
+                } else {
+                    closeQuietly(channel);
+                }
+            }
+        }
+    }
+
+    private void handle(SelectionKey key) {
+        ChessServerConnection connection = (ChessServerConnection) key.attachment();
+        try {
+            if (key.isReadable()) {
+                connection.read(readBuffer);
+            }
+            if (key.isValid() && key.isWritable()) {
+                connection.flush();
+            }
+        } catch (IOException | RuntimeException e) {
+            //a broken connection or a malformed request only ends this connection
+            System.out.println("Closing connection: " + e.getMessage());
+            connection.close();
+        }
+    }
+
+    private static void closeQuietly(SocketChannel channel) {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            // Ignore
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package org.example.proxy;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+
+//accepts connections and spreads them over a fixed number of event loops,
+//one heartbeat watches the players of all connections
+public class EventLoopServer {
+    private final ServerSocketChannel serverChannel;
+    private final EventLoop[] loops;
+    private final Heartbeat heartbeat;
+    private int next = 0;
+
+    public EventLoopServer(int port, IChessServer chessServer, int loopCount) throws IOException {
+        this(port, chessServer, loopCount, QueuedPlayer.Overflow.DISCONNECT, new Heartbeat());
+    }
+
+    public EventLoopServer(int port, IChessServer chessServer, int loopCount, QueuedPlayer.Overflow overflow,
+                           Heartbeat heartbeat) throws IOException {
+        this.heartbeat = heartbeat;
+        this.serverChannel = ServerSocketChannel.open();
+        serverChannel.bind(new InetSocketAddress(port));
+        this.loops = new EventLoop[loopCount];
+        for (int i = 0; i < loopCount; i++) {
+            loops[i] = new EventLoop(chessServer, overflow, heartbeat);
+        }
+    }
+
+    public int getPort() throws IOException {
+        return ((InetSocketAddress) serverChannel.getLocalAddress()).getPort();
+    }
+
+    //starts the event loops and accepts connections until the server is closed
+    public void run() throws IOException {
+        for (int i = 0; i < loops.length; i++) {
+            new Thread(loops[i], "event-loop-" + i).start();
+        }
+        while (serverChannel.isOpen()) {
+            SocketChannel channel = serverChannel.accept();
+            loops[next].register(channel);
+            next = (next + 1) % loops.length;
+        }
+    }
+
+    //the loops close their connections, whose players leave their games
+    public void close() throws IOException {
+        serverChannel.close();
+        heartbeat.close();
+        for (EventLoop loop : loops) {
+            loop.close();
+        }
+    }
+}
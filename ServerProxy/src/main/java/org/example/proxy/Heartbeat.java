@@ -0,0 +1,116 @@
+package org.example.proxy;
+
+import org.example.utils.HashedWheelTimer;
+
+import java.io.IOException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+//one heartbeat for the players of all connections of a server: any traffic of a player counts as being alive,
+//a player that was silent for the interval is probed and expires if it neither answers nor sends anything within the timeout
+public class Heartbeat implements AutoCloseable {
+    public static final long INTERVAL_SECONDS = 3;
+    public static final long TIMEOUT_SECONDS = 2;
+    private static final long TICK_MILLIS = 100;
+    private static final int WHEEL_SIZE = 512;
+
+    private final long interval;
+    private final long timeout;
+    private final HashedWheelTimer timer = HashedWheelTimer.start(TICK_MILLIS, TimeUnit.MILLISECONDS, WHEEL_SIZE, "heartbeat");
+    //probes wait for the client, so they run on threads of their own and not on the timer
+    private final ExecutorService probes = Executors.newVirtualThreadPerTaskExecutor();
+
+    public Heartbeat() {
+        this(INTERVAL_SECONDS, TIMEOUT_SECONDS, TimeUnit.SECONDS);
+    }
+
+    public Heartbeat(long interval, long timeout, TimeUnit unit) {
+        this.interval = unit.toNanos(interval);
+        this.timeout = unit.toNanos(timeout);
+    }
+
+    //starts watching the player, expired is called once if it stops answering
+    public <P extends IPlayer> Beat register(P player, Consumer<? super P> expired) {
+        Beat beat = new Beat(player, () -> expired.accept(player));
+        beat.schedule(interval);
+        return beat;
+    }
+
+    @Override
+    public void close() {
+        timer.close();
+        probes.shutdownNow();
+    }
+
+    public final class Beat {
+        private final IPlayer player;
+        private final Runnable expired;
+        private final AtomicBoolean done = new AtomicBoolean(false);
+        private volatile long lastSeen = System.nanoTime();
+        private volatile HashedWheelTimer.Timeout next;
+
+        private Beat(IPlayer player, Runnable expired) {
+            this.player = player;
+            this.expired = expired;
+        }
+
+        //called for any traffic of the player
+        public void touch() {
+            lastSeen = System.nanoTime();
+        }
+
+        public void cancel() {
+            done.set(true);
+            HashedWheelTimer.Timeout timeout = next;
+            if (timeout != null) {
+                timeout.cancel();
+            }
+        }
+
+        private void schedule(long delay) {
+            if (!done.get()) {
+                next = timer.schedule(this::check, delay, TimeUnit.NANOSECONDS);
+            }
+        }
+
+        //on the timer thread: traffic since the last check only moves the next one, silence is probed once per interval
+        private void check() {
+            long idle = System.nanoTime() - lastSeen;
+            if (idle < interval) {
+                schedule(interval - idle);
+                return;
+            }
+            if (idle >= interval + timeout) {
+                expire();
+                return;
+            }
+            probes.execute(this::probe);
+            schedule(interval + timeout - idle);
+        }
+
+        private void probe() {
+            try {
+                if (player.stillAlive()) {
+                    touch();
+                    return;
+                }
+            } catch (IOException | RuntimeException e) {
+                // expired below
+            }
+            expire();
+        }
+
+        private void expire() {
+            if (done.compareAndSet(false, true)) {
+                HashedWheelTimer.Timeout timeout = next;
+                if (timeout != null) {
+                    timeout.cancel();
+                }
+                probes.execute(expired);
+            }
+        }
+    }
+}
@@ -1,20 +1,27 @@
 package org.example.proxy;
 
 import com.google.gson.JsonObject;
-import org.example.exceptions.GameException;
-import org.example.exceptions.IllegalMoveException;
-import org.example.exceptions.JsonException;
-import org.example.exceptions.PlayerException;
 import org.example.game.Color;
 
+import java.util.concurrent.CompletableFuture;
+
+//the operations complete their futures once the game has run them, failed with the exceptions named below
 public interface IChessServer {
-    String createGame(IPlayer player, Color color) throws JsonException;
+    //fails with a JsonException
+    CompletableFuture<String> createGame(IPlayer player, Color color);
+
+    //fails with a GameException or a PlayerException
+    CompletableFuture<Color> joinGame(IPlayer player, String gameId);
 
-    Color joinGame(IPlayer player, String gameId) throws GameException, PlayerException;
+    //fails with a GameException or a PlayerException
+    CompletableFuture<Void> leaveGame(IPlayer player, String gameId);
 
-    void leaveGame(IPlayer player, String gameId) throws GameException, PlayerException;
+    //fails with a GameException, a PlayerException or an IllegalMoveException
+    CompletableFuture<Void> movePiece(IPlayer player, String gameId, int fromX, int fromY, int toX, int toY, String promotionFigure);
 
-    void movePiece(IPlayer player, String gameId, int fromX, int fromY, int toX, int toY, String promotionFigure) throws GameException, PlayerException, IllegalMoveException;
+    //fails with a GameException
+    CompletableFuture<JsonObject> getBoard(String gameId);
 
-    JsonObject getBoard(String gameId) throws GameException;
+    //fails with a GameException
+    CompletableFuture<JsonObject> getBoardSince(String gameId, int sequence);
 }
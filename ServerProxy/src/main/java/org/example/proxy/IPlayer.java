@@ -3,7 +3,7 @@ package org.example.proxy;
 import java.io.IOException;
 
 public interface IPlayer {
-    void updateGame(int fromX, int fromY, int toX, int toY, String promotionFigure, boolean gameOver, String message);
+    void updateGame(int fromX, int fromY, int toX, int toY, String promotionFigure, boolean gameOver, String message, int sequence);
 
     void receiveMessage(String message);
 
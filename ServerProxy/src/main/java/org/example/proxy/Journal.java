@@ -0,0 +1,441 @@
+package org.example.proxy;
+
+import org.example.game.Color;
+import org.example.game.MoveList;
+import org.example.utils.IdAllocator;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+//write-ahead journal of the games: every game that is created with its players, every change of its players, every
+//move that is played and every game that is removed is appended as a record to the current segment file. The records
+//are collected in a buffer and written by a thread of the journal, which syncs the file once for all records that came
+//in while it wrote the ones before, so a busy server syncs once per batch instead of once per move. The future of a
+//record completes on that thread once the record is on disk. A write that fails leaves the end of the segment torn, so
+//the journal fails as a whole: the records that were waiting and all later ones fail with the same exception instead
+//of being written after the torn one, where replaying would never reach them. Opening the journal replays the segments
+//up to a torn record at the end of the last one and writes the games that are still running to a new segment, which
+//starts with a checkpoint and replaces the old ones. The checkpoint holds the keys and the counter of the ids, every
+//game created after it moves the counter past its id, so no id is handed out again after a restart
+public final class Journal implements Closeable {
+    //type, id and length of the body, which is followed by the checksum of the record
+    static final int HEADER = 1 + IdAllocator.LENGTH + 2;
+    private static final int CHECKSUM = 4;
+    static final long SEGMENT_SIZE = 64L << 20;
+    private static final byte CREATE = 1;
+    private static final byte MOVE = 2;
+    private static final byte REMOVE = 3;
+    private static final byte PLAYERS = 4;
+    //the games after it are all that is running, the records before it are replaced. Its body are the keys and the
+    //counter of the ids
+    private static final byte CHECKPOINT = 5;
+    private static final String SUFFIX = ".journal";
+    //only the squares and the promotion of a move are stored, the flags follow from the position
+    private static final int MOVE_BITS = 0x7FFF;
+    private static final int MAX_LENGTH = 0xFFFF;
+    private static final String NO_GAME = "000000";
+
+    private final Path directory;
+    //the games that were running when the journal was opened, by id
+    private final Map<String, Game> games;
+    //hands out the ids after those of the journal
+    private final IdAllocator ids;
+    private FileChannel channel;
+    private int segment;
+    //end of the last record that is on disk, a failed write is cut back to it
+    private long end;
+
+    private final Object lock = new Object();
+    //records waiting for the next write and the future of that write, swapped with the buffer being written
+    private ByteBuffer batch = ByteBuffer.allocate(4096);
+    private ByteBuffer writing = ByteBuffer.allocate(4096);
+    private CompletableFuture<Void> committed = new CompletableFuture<>();
+    private boolean closed = false;
+    //the exception of the write that failed, the journal takes no records after it
+    private IOException failure;
+    private final Thread writer;
+
+    //a game that was running when the journal was opened: its moves and the ids of the players that had joined it
+    public static final class Game {
+        private final MoveList moves = new MoveList(64);
+        private String whiteId;
+        private String blackId;
+
+        private Game(String whiteId, String blackId) {
+            this.whiteId = whiteId;
+            this.blackId = blackId;
+        }
+
+        public MoveList getMoves() {
+            return moves;
+        }
+
+        //null if no player had joined with the color
+        public String getPlayerId(Color color) {
+            return color == Color.WHITE ? whiteId : blackId;
+        }
+    }
+
+    private Journal(Path directory, int segment, Map<String, Game> games, IdAllocator ids) throws IOException {
+        this.directory = directory;
+        this.segment = segment;
+        this.games = games;
+        this.ids = ids;
+        this.channel = FileChannel.open(segment(directory, segment), StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        this.end = channel.size();
+        this.writer = new Thread(this::write, "journal-writer");
+        writer.setDaemon(true);
+    }
+
+    public static Journal open(Path directory) throws IOException {
+        Files.createDirectories(directory);
+        List<Integer> segments = segments(directory);
+        //a crash right after the last compaction may have left the segments it replaced, they are not replayed
+        int first = 0;
+        for (int i = segments.size() - 1; i > 0 && first == 0; i--) {
+            if (isCheckpoint(segment(directory, segments.get(i)))) {
+                first = i;
+            }
+        }
+        Map<String, Game> games = new LinkedHashMap<>();
+        IdAllocator ids = null;
+        for (int i = first; i < segments.size(); i++) {
+            ids = replay(segment(directory, segments.get(i)), games, ids, i == segments.size() - 1);
+        }
+        if (ids == null) {
+            ids = new IdAllocator();
+        }
+        //the running games are written to a temporary file first, so a crash leaves either the old segments or the new one
+        int next = segments.isEmpty() ? 0 : segments.get(segments.size() - 1) + 1;
+        Path temporary = directory.resolve(segment(directory, next).getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer records = put(ByteBuffer.allocate(4096), CHECKPOINT, NO_GAME, checkpoint(ids));
+            for (Map.Entry<String, Game> entry : games.entrySet()) {
+                Game game = entry.getValue();
+                records = put(records, CREATE, entry.getKey(), players(game.whiteId, game.blackId));
+                for (int i = 0; i < game.moves.size(); i++) {
+                    records = put(records, MOVE, entry.getKey(), move(i + 1, game.moves.get(i)));
+                }
+                write(channel, records);
+            }
+            write(channel, records);
+            channel.force(true);
+        }
+        Files.move(temporary, segment(directory, next), StandardCopyOption.ATOMIC_MOVE);
+        for (int segment : segments) {
+            Files.delete(segment(directory, segment));
+        }
+        Journal journal = new Journal(directory, next, games, ids);
+        journal.writer.start();
+        return journal;
+    }
+
+    //the games that were running when the journal was opened, in the order they were created
+    public Map<String, Game> getGames() {
+        return Collections.unmodifiableMap(games);
+    }
+
+    //hands out the ids of new games, none of them was handed out before the journal was opened
+    public IdAllocator getIds() {
+        return ids;
+    }
+
+    //the ids are those of the players that created the game, null for the color nobody has
+    public CompletableFuture<Void> create(String gameId, String whiteId, String blackId) {
+        return append(CREATE, gameId, players(whiteId, blackId));
+    }
+
+    //the players of the game after one of them joined or left it
+    public CompletableFuture<Void> players(String gameId, String whiteId, String blackId) {
+        return append(PLAYERS, gameId, players(whiteId, blackId));
+    }
+
+    public CompletableFuture<Void> move(String gameId, int sequence, int move) {
+        return append(MOVE, gameId, move(sequence, move));
+    }
+
+    public CompletableFuture<Void> remove(String gameId) {
+        return append(REMOVE, gameId, ByteBuffer.allocate(0));
+    }
+
+    private CompletableFuture<Void> append(byte type, String gameId, ByteBuffer body) {
+        synchronized (lock) {
+            if (failure != null) {
+                return CompletableFuture.failedFuture(failure);
+            }
+            if (closed) {
+                return CompletableFuture.failedFuture(new IOException("Journal is closed"));
+            }
+            batch = put(batch, type, gameId, body);
+            lock.notify();
+            return committed;
+        }
+    }
+
+    //true once a write failed, nothing can be written anymore
+    public boolean isFailed() {
+        synchronized (lock) {
+            return failure != null;
+        }
+    }
+
+    private static ByteBuffer checkpoint(IdAllocator ids) {
+        ByteBuffer body = ByteBuffer.allocate((IdAllocator.ROUNDS + 1) * 8);
+        for (long key : ids.getKeys()) {
+            body.putLong(key);
+        }
+        return body.putLong(ids.getNext()).flip();
+    }
+
+    private static IdAllocator ids(ByteBuffer body) {
+        long[] keys = new long[IdAllocator.ROUNDS];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = body.getLong();
+        }
+        return new IdAllocator(keys, body.getLong());
+    }
+
+    private static ByteBuffer move(int sequence, int move) {
+        return ByteBuffer.allocate(2 + 4).putShort((short) (move & MOVE_BITS)).putInt(sequence).flip();
+    }
+
+    //a player that has not joined is stored as an empty id
+    private static ByteBuffer players(String whiteId, String blackId) {
+        byte[] white = whiteId == null ? new byte[0] : whiteId.getBytes(StandardCharsets.UTF_8);
+        byte[] black = blackId == null ? new byte[0] : blackId.getBytes(StandardCharsets.UTF_8);
+        if (2 + white.length + 2 + black.length > MAX_LENGTH) {
+            throw new IllegalArgumentException("Player ids are too long");
+        }
+        return ByteBuffer.allocate(2 + white.length + 2 + black.length)
+                .putShort((short) white.length).put(white)
+                .putShort((short) black.length).put(black)
+                .flip();
+    }
+
+    private static String playerId(ByteBuffer body) {
+        byte[] id = new byte[body.getShort() & MAX_LENGTH];
+        body.get(id);
+        return id.length == 0 ? null : new String(id, StandardCharsets.UTF_8);
+    }
+
+    //the buffer with the record, a larger one if it did not fit
+    private static ByteBuffer put(ByteBuffer buffer, byte type, String gameId, ByteBuffer body) {
+        byte[] id = gameId.getBytes(StandardCharsets.US_ASCII);
+        if (id.length != IdAllocator.LENGTH) {
+            throw new IllegalArgumentException("Invalid game id: \"" + gameId + "\"");
+        }
+        int length = body.remaining();
+        if (buffer.remaining() < HEADER + length + CHECKSUM) {
+            ByteBuffer larger = ByteBuffer.allocate(Math.max(buffer.capacity() * 2, buffer.position() + HEADER + length + CHECKSUM));
+            buffer = larger.put(buffer.flip());
+        }
+        int start = buffer.position();
+        buffer.put(type);
+        buffer.put(id);
+        buffer.putShort((short) length);
+        buffer.put(body);
+        buffer.putInt(checksum(buffer, start, HEADER + length));
+        return buffer;
+    }
+
+    private static int checksum(ByteBuffer buffer, int start, int length) {
+        CRC32C crc = new CRC32C();
+        crc.update(buffer.slice(start, length));
+        return (int) crc.getValue();
+    }
+
+    private static void write(FileChannel channel, ByteBuffer records) throws IOException {
+        records.flip();
+        while (records.hasRemaining()) {
+            channel.write(records);
+        }
+        records.clear();
+    }
+
+    //writes the batches until the journal is closed and everything appended before is on disk
+    private void write() {
+        while (true) {
+            ByteBuffer records;
+            CompletableFuture<Void> commit;
+            synchronized (lock) {
+                while (batch.position() == 0 && !closed) {
+                    try {
+                        lock.wait();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                }
+                if (batch.position() == 0) {
+                    return;
+                }
+                records = batch;
+                batch = writing;
+                writing = records;
+                commit = committed;
+                committed = new CompletableFuture<>();
+            }
+            records.flip();
+            try {
+                while (records.hasRemaining()) {
+                    channel.write(records);
+                }
+                channel.force(false);
+                end = channel.size();
+                if (end >= SEGMENT_SIZE) {
+                    channel.close();
+                    segment++;
+                    channel = FileChannel.open(segment(directory, segment), StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+                    end = 0;
+                }
+            } catch (IOException e) {
+                fail(e, commit);
+                return;
+            }
+            commit.complete(null);
+            records.clear();
+        }
+    }
+
+    //the torn records are cut off if the file still allows it, so the journal can be opened again after the failure
+    private void fail(IOException e, CompletableFuture<Void> commit) {
+        try {
+            channel.truncate(end);
+            channel.force(false);
+        } catch (IOException truncation) {
+            e.addSuppressed(truncation);
+        }
+        CompletableFuture<Void> waiting;
+        synchronized (lock) {
+            failure = e;
+            batch.clear();
+            waiting = committed;
+        }
+        commit.completeExceptionally(e);
+        waiting.completeExceptionally(e);
+    }
+
+    //the segment is read through a memory mapping, a record that does not match its checksum at the end of the last
+    //segment was torn by a crash, anywhere else the journal is corrupt. Returns the ids after those of the segment
+    private static IdAllocator replay(Path segment, Map<String, Game> games, IdAllocator ids, boolean last) throws IOException {
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.READ)) {
+            ByteBuffer records = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            byte[] id = new byte[IdAllocator.LENGTH];
+            while (records.hasRemaining()) {
+                int start = records.position();
+                if (records.remaining() < HEADER) {
+                    torn(segment, start, last);
+                    return ids;
+                }
+                byte type = records.get();
+                records.get(id);
+                int length = records.getShort() & MAX_LENGTH;
+                if (records.remaining() < length + CHECKSUM) {
+                    torn(segment, start, last);
+                    return ids;
+                }
+                ByteBuffer body = records.slice(records.position(), length);
+                records.position(records.position() + length);
+                if (records.getInt() != checksum(records, start, HEADER + length)) {
+                    torn(segment, start, last);
+                    return ids;
+                }
+                String gameId = new String(id, StandardCharsets.US_ASCII);
+                switch (type) {
+                    case CREATE -> {
+                        if (ids == null) {
+                            throw new IOException("Journal " + segment.getFileName() + " has no checkpoint before " + start);
+                        }
+                        ids.reserve(gameId);
+                        games.put(gameId, new Game(playerId(body), playerId(body)));
+                    }
+                    case PLAYERS -> {
+                        Game game = games.get(gameId);
+                        if (game != null) {
+                            game.whiteId = playerId(body);
+                            game.blackId = playerId(body);
+                        }
+                    }
+                    case MOVE -> {
+                        //a move that does not follow the last one of its game is not applied
+                        int move = body.getShort() & MOVE_BITS;
+                        int sequence = body.getInt();
+                        Game game = games.get(gameId);
+                        if (game != null && game.moves.size() + 1 == sequence) {
+                            game.moves.add(move);
+                        }
+                    }
+                    case REMOVE -> games.remove(gameId);
+                    case CHECKPOINT -> {
+                        games.clear();
+                        ids = ids(body);
+                    }
+                    default -> throw new IOException("Journal " + segment.getFileName() + " has an unknown record at " + start);
+                }
+            }
+        }
+        return ids;
+    }
+
+    private static void torn(Path segment, int start, boolean last) throws IOException {
+        if (!last) {
+            throw new IOException("Journal " + segment.getFileName() + " is corrupt at " + start);
+        }
+    }
+
+    private static boolean isCheckpoint(Path segment) throws IOException {
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.READ)) {
+            ByteBuffer type = ByteBuffer.allocate(1);
+            return channel.read(type) == 1 && type.get(0) == CHECKPOINT;
+        }
+    }
+
+    private static List<Integer> segments(Path directory) throws IOException {
+        List<Integer> segments = new ArrayList<>();
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                String name = file.getFileName().toString();
+                if (name.endsWith(SUFFIX)) {
+                    segments.add(Integer.parseInt(name.substring(0, name.length() - SUFFIX.length())));
+                }
+            }
+        }
+        Collections.sort(segments);
+        return segments;
+    }
+
+    private static Path segment(Path directory, int segment) {
+        return directory.resolve(String.format("%08d", segment) + SUFFIX);
+    }
+
+    //waits until everything appended before is on disk
+    @Override
+    public void close() throws IOException {
+        synchronized (lock) {
+            closed = true;
+            lock.notify();
+        }
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        channel.close();
+    }
+}
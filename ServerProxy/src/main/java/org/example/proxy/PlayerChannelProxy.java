@@ -0,0 +1,153 @@
+package org.example.proxy;
+
+import org.example.RPC.RpcMessage;
+import org.example.proxy.PlayerClientProxy.Protocol;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+//pushes to a player on a channel of the connection the client opened itself, instead of dialing back like PlayerClientProxy:
+//every call is numbered and the client answers with the number, so an answer that comes after its call timed out
+//completes nothing instead of the next call
+public class PlayerChannelProxy implements IPlayer {
+    //shorter than the period of the heartbeat
+    private static final long STILL_ALIVE_TIMEOUT = 2;
+    private static final long PUSH_TIMEOUT = 10;
+
+    private final String id;
+    private final int channel;
+    private final Consumer<RpcMessage> connection;
+    //calls waiting for their answer by number, guarded by the lock like the number of the last call
+    private final Map<Integer, CompletableFuture<RpcMessage>> pending = new HashMap<>();
+    private int requests = 0;
+    private final ReentrantLock lock = new ReentrantLock();
+
+    //set by the operations of the game, read by the connection and the heartbeat
+    private volatile ChessGame currentGame;
+
+    public PlayerChannelProxy(String id, int channel, Consumer<RpcMessage> connection) {
+        this.id = id;
+        this.channel = channel;
+        this.connection = connection;
+    }
+
+    @Override
+    public void updateGame(int fromX, int fromY, int toX, int toY, String promotionFigure, boolean gameOver, String message, int sequence) {
+        push(PlayerClientProxy.updateGameMessage(fromX, fromY, toX, toY, promotionFigure, gameOver, message, sequence));
+    }
+
+    @Override
+    public void receiveMessage(String message) {
+        push(new RpcMessage(Protocol.RECEIVE_MESSAGE.ordinal(), message));
+    }
+
+    @Override
+    public void startGame() {
+        push(new RpcMessage(Protocol.START_GAME.ordinal(), ""));
+    }
+
+    @Override
+    public boolean stillAlive() {
+        try {
+            RpcMessage msg = call(new RpcMessage(Protocol.STILL_ALIVE.ordinal(), ""), STILL_ALIVE_TIMEOUT);
+            return msg.getCode() == 0;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } catch (ExecutionException | TimeoutException e) {
+            return false;
+        }
+    }
+
+    //waits for the answer like PlayerClientProxy, so the queue of the QueuedPlayer of this player only empties
+    //as fast as the client takes the pushes; its writer calls it, never the thread reading the connection
+    private void push(RpcMessage message) {
+        RpcMessage answer;
+        try {
+            answer = call(message, PUSH_TIMEOUT);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted");
+        } catch (ExecutionException | TimeoutException e) {
+            throw new RuntimeException("No answer of player " + id);
+        }
+        if (answer.getCode() != 0) {
+            throw new RuntimeException(answer.getMessage());
+        }
+    }
+
+    //the call is pending until it is answered or times out, 0 is never the number of a call
+    private RpcMessage call(RpcMessage message, long timeout) throws InterruptedException, ExecutionException, TimeoutException {
+        CompletableFuture<RpcMessage> answer = new CompletableFuture<>();
+        int requestId;
+        lock.lock();
+        try {
+            requests = requests == Integer.MAX_VALUE ? 1 : requests + 1;
+            requestId = requests;
+            pending.put(requestId, answer);
+            connection.accept(message.onChannel(channel).forRequest(requestId));
+        } finally {
+            lock.unlock();
+        }
+        try {
+            return answer.get(timeout, TimeUnit.SECONDS);
+        } finally {
+            lock.lock();
+            try {
+                pending.remove(requestId);
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    //called with the frames of the client on the channel
+    void receive(RpcMessage answer) {
+        CompletableFuture<RpcMessage> call;
+        lock.lock();
+        try {
+            call = pending.remove(answer.getRequestId());
+        } finally {
+            lock.unlock();
+        }
+        if (call != null) {
+            call.complete(answer);
+        }
+    }
+
+    //the connection is gone, calls still waiting for an answer will not get one
+    void close() {
+        lock.lock();
+        try {
+            for (CompletableFuture<RpcMessage> call : pending.values()) {
+                call.completeExceptionally(new IllegalStateException("Connection closed"));
+            }
+            pending.clear();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    int getChannel() {
+        return channel;
+    }
+
+    @Override
+    public String getId() {
+        return id;
+    }
+
+    public void setCurrentGame(ChessGame game) {
+        this.currentGame = game;
+    }
+
+    public ChessGame currentGame() {
+        return currentGame;
+    }
+}
@@ -1,51 +1,80 @@
 package org.example.proxy;
 
 import com.google.gson.JsonObject;
+import org.example.RPC.RpcHandshake;
 import org.example.RPC.RpcMessage;
 import org.example.RPC.RpcReader;
 import org.example.RPC.RpcWriter;
 
+import java.io.Closeable;
 import java.io.IOException;
-import java.io.InputStreamReader;
-import java.io.OutputStreamWriter;
+import java.net.InetSocketAddress;
 import java.net.Socket;
+import java.util.concurrent.locks.ReentrantLock;
 
-public class PlayerClientProxy implements IPlayer {
+public class PlayerClientProxy implements IPlayer, Closeable {
     private final Socket socket;
     private final RpcWriter writer;
     private final RpcReader reader;
+    private final ReentrantLock lock = new ReentrantLock();
 
     private final String id;
 
-    private ChessGame currentGame;
+    //set by the operations of the game, read by the connection and the heartbeat
+    private volatile ChessGame currentGame;
+    //the protocol offer of an older client has already been read during the handshake
+    private boolean offerRead = false;
+    private boolean banner = true;
 
     enum Protocol {
-        UPDATE_GAME, RECEIVE_MESSAGE, START_GAME, STILL_ALIVE;
+        UPDATE_GAME, RECEIVE_MESSAGE, START_GAME, STILL_ALIVE, END_CONNECTION, HANDSHAKE;
+    }
+
+    //dials back to the client of the player, connecting and the handshake give up after the timeout
+    public static PlayerClientProxy connect(String host, int port, String id, int timeoutMillis) throws IOException {
+        Socket socket = new Socket();
+        try {
+            socket.connect(new InetSocketAddress(host, port), timeoutMillis);
+            socket.setSoTimeout(timeoutMillis);
+            PlayerClientProxy player = new PlayerClientProxy(socket, id);
+            socket.setSoTimeout(0);
+            return player;
+        } catch (IOException e) {
+            socket.close();
+            throw e;
+        }
     }
 
     public PlayerClientProxy(Socket socket, String id) throws IOException {
         this.socket = socket;
-        this.writer = new RpcWriter(new OutputStreamWriter(socket.getOutputStream()));
-        this.reader = new RpcReader(new InputStreamReader(socket.getInputStream()));
+        this.writer = new RpcWriter(socket.getOutputStream());
+        this.reader = new RpcReader(socket.getInputStream());
         this.id = id;
+        handshake();
+    }
+
+    //agrees on the features if the client offers the handshake, older clients keep offering their protocol before every call
+    private void handshake() throws IOException {
+        RpcMessage offer = reader.readRpcMessage();
+        if (!offer.getMessage().contains(Protocol.HANDSHAKE.name())) {
+            offerRead = true;
+            return;
+        }
+        writer.sendRpcMessage(RpcHandshake.request(Protocol.HANDSHAKE.ordinal(), RpcHandshake.BINARY, RpcHandshake.NO_BANNER));
+        RpcMessage answer = reader.readRpcMessage();
+        if (answer.getCode() != 0) {
+            return;
+        }
+        RpcHandshake handshake = RpcHandshake.of(answer);
+        reader.setBinary(handshake.has(RpcHandshake.BINARY));
+        writer.setBinary(handshake.has(RpcHandshake.BINARY));
+        banner = !handshake.has(RpcHandshake.NO_BANNER);
     }
 
     @Override
-    public void updateGame(int fromX, int fromY, int toX, int toY, String promotionFigure, boolean gameOver, String message) {
-        JsonObject json = new JsonObject();
-        json.addProperty("fromX", fromX);
-        json.addProperty("fromY", fromY);
-        json.addProperty("toX", toX);
-        json.addProperty("toY", toY);
-        json.addProperty("promotionFigure", promotionFigure);
-        json.addProperty("gameOver", gameOver);
-        json.addProperty("message", message);
+    public void updateGame(int fromX, int fromY, int toX, int toY, String promotionFigure, boolean gameOver, String message, int sequence) {
         try {
-            reader.readRpcMessage();
-            writer.sendRpcMessage(
-                    new RpcMessage(Protocol.UPDATE_GAME.ordinal(), json.toString())
-            );
-            RpcMessage msg = reader.readRpcMessage();
+            RpcMessage msg = call(updateGameMessage(fromX, fromY, toX, toY, promotionFigure, gameOver, message, sequence));
             if (msg.getCode() != 0) {
                 throw new RuntimeException(msg.getMessage());
             }
@@ -54,12 +83,15 @@ public class PlayerClientProxy implements IPlayer {
         }
     }
 
+    static RpcMessage updateGameMessage(int fromX, int fromY, int toX, int toY, String promotionFigure, boolean gameOver, String message, int sequence) {
+        JsonObject json = ChessGame.update(fromX, fromY, toX, toY, promotionFigure, gameOver, message, sequence);
+        return new RpcMessage(Protocol.UPDATE_GAME.ordinal(), json.toString());
+    }
+
     @Override
     public void receiveMessage(String message) {
         try {
-            reader.readRpcMessage();
-            writer.sendMessage(Protocol.RECEIVE_MESSAGE.ordinal(), message);
-            RpcMessage msg = reader.readRpcMessage();
+            RpcMessage msg = call(new RpcMessage(Protocol.RECEIVE_MESSAGE.ordinal(), message));
             if (msg.getCode() != 0) {
                 throw new RuntimeException(msg.getMessage());
             }
@@ -71,9 +103,7 @@ public class PlayerClientProxy implements IPlayer {
     @Override
     public void startGame() {
         try {
-            reader.readRpcMessage();
-            writer.sendMessage(Protocol.START_GAME.ordinal(), "");
-            RpcMessage msg = reader.readRpcMessage();
+            RpcMessage msg = call(new RpcMessage(Protocol.START_GAME.ordinal(), ""));
             if (msg.getCode() != 0) {
                 throw new RuntimeException(msg.getMessage());
             }
@@ -87,12 +117,18 @@ public class PlayerClientProxy implements IPlayer {
         return id;
     }
 
+    //the connection that was dialed back
+    @Override
+    public void close() throws IOException {
+        socket.close();
+    }
+
     @Override
     public boolean stillAlive() {
         boolean stillAlive = stillAliveIntern();
+        //the server removes the player from its game once the heartbeat gives up on it
         if (!stillAlive) {
             try {
-                currentGame.removePlayer(this);
                 socket.close();
             } catch (IOException e) {
                 return false;
@@ -103,15 +139,30 @@ public class PlayerClientProxy implements IPlayer {
 
     private boolean stillAliveIntern() {
         try {
-            reader.readRpcMessage();
-            writer.sendMessage(Protocol.STILL_ALIVE.ordinal(), "");
-            RpcMessage msg = reader.readRpcMessage();
+            RpcMessage msg = call(new RpcMessage(Protocol.STILL_ALIVE.ordinal(), ""));
             return msg.getCode() == 0;
         } catch (Exception e) {
             return false;
         }
     }
 
+    //one lockstep exchange with the client: its protocol offer unless the handshake dropped it, the request and its answer,
+    //a lock instead of synchronized so a virtual thread waiting for the client does not pin its carrier
+    private RpcMessage call(RpcMessage request) throws IOException {
+        lock.lock();
+        try {
+            if (offerRead) {
+                offerRead = false;
+            } else if (banner) {
+                reader.readRpcMessage();
+            }
+            writer.sendRpcMessage(request);
+            return reader.readRpcMessage();
+        } finally {
+            lock.unlock();
+        }
+    }
+
     public void setCurrentGame(ChessGame game) {
         this.currentGame = game;
     }
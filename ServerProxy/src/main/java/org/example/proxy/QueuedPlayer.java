@@ -0,0 +1,151 @@
+package org.example.proxy;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+//decouples the games from the connection of a player: pushes are queued and delivered by a writer of their own,
+//so a move does not wait for the clients; a player whose queue overflows is a slow consumer
+public final class QueuedPlayer implements IPlayer {
+    public static final int CAPACITY = 64;
+
+    public enum Overflow {
+        //pushes that do not fit are dropped, the client can reload the board
+        DROP,
+        //the player is not alive anymore and leaves its game right away, its requests would keep the heartbeat going
+        DISCONNECT
+    }
+
+    private final IPlayer player;
+    private final Overflow overflow;
+    private final BlockingQueue<Runnable> queue;
+    private final Thread writer;
+    private final LongAdder dropped = new LongAdder();
+    //called once for a slow consumer that is disconnected
+    private final Consumer<QueuedPlayer> disconnect;
+    private volatile boolean disconnected = false;
+
+    private QueuedPlayer(IPlayer player, int capacity, Overflow overflow, Consumer<QueuedPlayer> disconnect) {
+        this.player = player;
+        this.overflow = overflow;
+        this.disconnect = disconnect;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.writer = Thread.ofVirtual().name("writer-" + player.getId()).unstarted(this::write);
+    }
+
+    public static QueuedPlayer start(IPlayer player, int capacity, Overflow overflow) {
+        return start(player, capacity, overflow, queued -> { });
+    }
+
+    //the writer is only started once the player has been constructed
+    public static QueuedPlayer start(IPlayer player, int capacity, Overflow overflow, Consumer<QueuedPlayer> disconnect) {
+        QueuedPlayer queued = new QueuedPlayer(player, capacity, overflow, disconnect);
+        queued.writer.start();
+        return queued;
+    }
+
+    private void write() {
+        try {
+            while (!disconnected) {
+                Runnable push = queue.take();
+                try {
+                    push.run();
+                } catch (RuntimeException e) {
+                    System.out.println("Player " + getId() + " failed: " + e.getMessage());
+                }
+            }
+        } catch (InterruptedException e) {
+            // closed
+        } finally {
+            //nothing is pushed anymore, e.g. the socket of a player that was dialed back is closed
+            if (player instanceof Closeable closeable) {
+                try {
+                    closeable.close();
+                } catch (IOException e) {
+                    // Ignore
+                }
+            }
+        }
+    }
+
+    private void enqueue(Runnable push) {
+        if (disconnected || queue.offer(push)) {
+            return;
+        }
+        System.out.println("Player " + getId() + " is a slow consumer, " + queue.size() + " pushes queued");
+        switch (overflow) {
+            case DROP -> dropped.increment();
+            case DISCONNECT -> disconnect();
+        }
+    }
+
+    private synchronized void disconnect() {
+        if (disconnected) {
+            return;
+        }
+        close();
+        disconnect.accept(this);
+    }
+
+    @Override
+    public void updateGame(int fromX, int fromY, int toX, int toY, String promotionFigure, boolean gameOver, String message, int sequence) {
+        enqueue(() -> player.updateGame(fromX, fromY, toX, toY, promotionFigure, gameOver, message, sequence));
+    }
+
+    @Override
+    public void receiveMessage(String message) {
+        enqueue(() -> player.receiveMessage(message));
+    }
+
+    @Override
+    public void startGame() {
+        enqueue(player::startGame);
+    }
+
+    @Override
+    public boolean stillAlive() throws IOException {
+        if (disconnected) {
+            return false;
+        }
+        boolean stillAlive = player.stillAlive();
+        if (!stillAlive) {
+            close();
+        }
+        return stillAlive;
+    }
+
+    //stops the writer, pushes still queued are not delivered anymore and the writer closes the player on its way out
+    public void close() {
+        disconnected = true;
+        queue.clear();
+        writer.interrupt();
+    }
+
+    public boolean isDisconnected() {
+        return disconnected;
+    }
+
+    public int getQueued() {
+        return queue.size();
+    }
+
+    public long getDropped() {
+        return dropped.sum();
+    }
+
+    @Override
+    public String getId() {
+        return player.getId();
+    }
+
+    public void setCurrentGame(ChessGame game) {
+        player.setCurrentGame(game);
+    }
+
+    public ChessGame currentGame() {
+        return player.currentGame();
+    }
+}
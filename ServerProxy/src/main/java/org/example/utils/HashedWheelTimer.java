@@ -0,0 +1,136 @@
+package org.example.utils;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+//timer for many timeouts that are mostly rescheduled or cancelled before they expire: a timeout is hashed by its deadline
+//into a bucket of a wheel that one thread turns a tick at a time, so scheduling and cancelling cost the same for any number
+//of timeouts; deadlines are only as exact as the tick
+public final class HashedWheelTimer implements AutoCloseable {
+    private final long tick;
+    private final List<Queue<Timeout>> wheel;
+    private final int mask;
+    //timeouts scheduled by other threads, moved into the wheel by the timer thread at the next tick
+    private final Queue<Timeout> added = new ConcurrentLinkedQueue<>();
+    private final long start = System.nanoTime();
+    private final Thread thread;
+    private volatile boolean running = true;
+    private long ticks = 0;
+
+    private HashedWheelTimer(long tickDuration, TimeUnit unit, int wheelSize, String name) {
+        if (tickDuration <= 0 || wheelSize <= 0 || Integer.bitCount(wheelSize) != 1) {
+            throw new IllegalArgumentException("Tick must be positive and the wheel size a power of two");
+        }
+        this.tick = unit.toNanos(tickDuration);
+        this.wheel = new ArrayList<>(wheelSize);
+        for (int i = 0; i < wheelSize; i++) {
+            wheel.add(new ArrayDeque<>());
+        }
+        this.mask = wheelSize - 1;
+        this.thread = new Thread(this::run, name);
+        thread.setDaemon(true);
+    }
+
+    //the thread of the timer is only started once the timer has been constructed
+    public static HashedWheelTimer start(long tickDuration, TimeUnit unit, int wheelSize, String name) {
+        HashedWheelTimer timer = new HashedWheelTimer(tickDuration, unit, wheelSize, name);
+        timer.thread.start();
+        return timer;
+    }
+
+    //runs the task on the timer thread once the delay has passed, so it should only hand longer work to other threads
+    public Timeout schedule(Runnable task, long delay, TimeUnit unit) {
+        Timeout timeout = new Timeout(task, System.nanoTime() - start + unit.toNanos(Math.max(0, delay)));
+        added.add(timeout);
+        return timeout;
+    }
+
+    private void run() {
+        while (running) {
+            long deadline = (ticks + 1) * tick;
+            long sleep;
+            while (running && (sleep = deadline - (System.nanoTime() - start)) > 0) {
+                LockSupport.parkNanos(this, sleep);
+            }
+            transferAdded();
+            expire(wheel.get((int) (ticks & mask)));
+            ticks++;
+        }
+    }
+
+    private void transferAdded() {
+        Timeout timeout;
+        while ((timeout = added.poll()) != null) {
+            if (timeout.cancelled) {
+                continue;
+            }
+            //the first tick at or after the deadline, a deadline already passed expires with the current tick
+            long due = Math.max((timeout.deadline + tick - 1) / tick - 1, ticks);
+            timeout.rounds = (due - ticks) / wheel.size();
+            wheel.get((int) (due & mask)).add(timeout);
+        }
+    }
+
+    private void expire(Queue<Timeout> bucket) {
+        Iterator<Timeout> timeouts = bucket.iterator();
+        while (timeouts.hasNext()) {
+            Timeout timeout = timeouts.next();
+            if (timeout.cancelled) {
+                timeouts.remove();
+            } else if (timeout.rounds == 0) {
+                timeouts.remove();
+                timeout.expire();
+            } else {
+                timeout.rounds--;
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        LockSupport.unpark(thread);
+    }
+
+    public static final class Timeout {
+        private final Runnable task;
+        //nanos since the start of the timer
+        private final long deadline;
+        //turns of the wheel left before the timeout is due
+        private long rounds;
+        private volatile boolean cancelled = false;
+        private volatile boolean expired = false;
+
+        private Timeout(Runnable task, long deadline) {
+            this.task = task;
+            this.deadline = deadline;
+        }
+
+        private void expire() {
+            expired = true;
+            try {
+                task.run();
+            } catch (RuntimeException e) {
+                System.out.println("Timeout failed: " + e.getMessage());
+            }
+        }
+
+        public void cancel() {
+            cancelled = true;
+        }
+
+        public boolean isCancelled() {
+            return cancelled;
+        }
+
+        public boolean isExpired() {
+            return expired;
+        }
+    }
+}
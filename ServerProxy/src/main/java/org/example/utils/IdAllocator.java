@@ -0,0 +1,109 @@
+package org.example.utils;
+
+import java.security.SecureRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+//hands out ids of 6 uppercase letters and digits without ever repeating one before all 36^6 are used: the ids are
+//the numbers of a counter, shuffled by a feistel network keyed at random. Each half of an id is a number below 36^3
+//and every round adds a keyed hash of one half to the other modulo 36^3, which can be undone, so different numbers
+//always give different ids and no id has to be checked or drawn again; the order of the ids cannot be told from them
+public class IdAllocator {
+    public static final int LENGTH = 6;
+    private static final String CHARS = "ABCDEFGHIJKLMNOPQRSTUVWXYZ1234567890";
+    //ids a half of an id can take
+    private static final int HALF = CHARS.length() * CHARS.length() * CHARS.length();
+    public static final long IDS = (long) HALF * HALF;
+    public static final int ROUNDS = 4;
+
+    private final long[] keys = new long[ROUNDS];
+    private final AtomicLong counter;
+
+    public IdAllocator() {
+        this(new SecureRandom().longs(ROUNDS).toArray(), 0);
+    }
+
+    //the same keys and counter give the same ids again
+    public IdAllocator(long[] keys, long next) {
+        if (keys.length != ROUNDS) {
+            throw new IllegalArgumentException("Expected " + ROUNDS + " keys");
+        }
+        System.arraycopy(keys, 0, this.keys, 0, ROUNDS);
+        this.counter = new AtomicLong(next);
+    }
+
+    public String next() {
+        return encode(permute(Math.floorMod(counter.getAndIncrement(), IDS)));
+    }
+
+    //an id handed out by an allocator with the same keys is not handed out again, e.g. one restored from a journal
+    public void reserve(String id) {
+        long n = unpermute(decode(id));
+        counter.accumulateAndGet(n + 1, Math::max);
+    }
+
+    public long[] getKeys() {
+        return keys.clone();
+    }
+
+    //the counter of the next id
+    public long getNext() {
+        return counter.get();
+    }
+
+    //the id of the n-th number, different for every n below IDS
+    long permute(long n) {
+        int left = (int) (n / HALF);
+        int right = (int) (n % HALF);
+        for (long key : keys) {
+            int mixed = (left + round(right, key)) % HALF;
+            left = right;
+            right = mixed;
+        }
+        return (long) left * HALF + right;
+    }
+
+    //the number of the id, the rounds undone in reverse order
+    long unpermute(long id) {
+        int left = (int) (id / HALF);
+        int right = (int) (id % HALF);
+        for (int i = ROUNDS - 1; i >= 0; i--) {
+            int mixed = Math.floorMod(right - round(left, keys[i]), HALF);
+            right = left;
+            left = mixed;
+        }
+        return (long) left * HALF + right;
+    }
+
+    //the bits of the half spread over the hash by the finalizer of SplitMix64
+    private static int round(int half, long key) {
+        long z = half ^ key;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        z = z ^ (z >>> 31);
+        return (int) Math.floorMod(z, (long) HALF);
+    }
+
+    private static String encode(long id) {
+        char[] chars = new char[LENGTH];
+        for (int i = LENGTH - 1; i >= 0; i--) {
+            chars[i] = CHARS.charAt((int) (id % CHARS.length()));
+            id /= CHARS.length();
+        }
+        return new String(chars);
+    }
+
+    private static long decode(String id) {
+        if (id.length() != LENGTH) {
+            throw new IllegalArgumentException("Invalid id: \"" + id + "\"");
+        }
+        long n = 0;
+        for (int i = 0; i < LENGTH; i++) {
+            int digit = CHARS.indexOf(id.charAt(i));
+            if (digit < 0) {
+                throw new IllegalArgumentException("Invalid id: \"" + id + "\"");
+            }
+            n = n * CHARS.length() + digit;
+        }
+        return n;
+    }
+}
@@ -0,0 +1,69 @@
+package org.example.utils;
+
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+//runs the tasks given to it one after the other in the order they were given, on the threads of a shared executor
+//instead of a thread of its own, so any number of mailboxes share a few threads; state only touched by the tasks
+//of one mailbox needs no lock. A mailbox runs a batch of tasks at a time and then queues up behind the others again,
+//so a busy mailbox does not keep the others from running
+public class Mailbox implements Executor {
+    public static final int BATCH = 16;
+
+    private final Executor executor;
+    private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+    //true while a batch is queued on or running in the executor
+    private final AtomicBoolean scheduled = new AtomicBoolean(false);
+
+    public Mailbox(Executor executor) {
+        this.executor = executor;
+    }
+
+    @Override
+    public void execute(Runnable task) {
+        tasks.add(task);
+        schedule();
+    }
+
+    //the result of the task, or the exception it threw
+    public <T> CompletableFuture<T> submit(Callable<T> task) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        execute(() -> {
+            try {
+                future.complete(task.call());
+            } catch (Exception e) {
+                future.completeExceptionally(e);
+            }
+        });
+        return future;
+    }
+
+    private void schedule() {
+        if (scheduled.compareAndSet(false, true)) {
+            executor.execute(this::run);
+        }
+    }
+
+    private void run() {
+        for (int i = 0; i < BATCH; i++) {
+            Runnable task = tasks.poll();
+            if (task == null) {
+                break;
+            }
+            try {
+                task.run();
+            } catch (RuntimeException e) {
+                System.out.println("Task failed: " + e.getMessage());
+            }
+        }
+        scheduled.set(false);
+        //tasks added while the batch ran, or left over from it
+        if (!tasks.isEmpty()) {
+            schedule();
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package org.example.RPC;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RpcCodecTest {
+
+    @Test
+    void decode_shouldReassembleFramesSplitAcrossBuffers() throws IOException {
+        // Arrange
+        RpcCodec codec = new RpcCodec();
+        byte[] bytes = (new RpcMessage(0, "ABCDEF", "6", "4") + "\r\n" + new RpcMessage(1, "ABCDEF") + "\n")
+                .getBytes(StandardCharsets.UTF_8);
+
+        // Act
+        RpcMessage partial = codec.decode(ByteBuffer.wrap(bytes, 0, 5));
+        ByteBuffer rest = ByteBuffer.wrap(bytes, 5, bytes.length - 5);
+        RpcMessage first = codec.decode(rest);
+        RpcMessage second = codec.decode(rest);
+
+        // Assert
+        assertNull(partial);
+        assertEquals(0, first.getCode());
+        assertEquals("4", first.getArg(2));
+        assertEquals(1, second.getCode());
+        assertEquals("ABCDEF", second.getMessage());
+        assertNull(codec.decode(rest));
+    }
+
+    @Test
+    void encode_shouldWriteOneLinePerMessage() {
+        // Act
+        ByteBuffer buffer = new RpcCodec().encode(new RpcMessage(0, "success"));
+
+        // Assert
+        assertEquals(new RpcMessage(0, "success") + "\n", StandardCharsets.UTF_8.decode(buffer).toString());
+    }
+
+    @Test
+    void decode_shouldReadTypedBinaryFramesByteByByte() throws IOException {
+        // Arrange
+        RpcCodec codec = new RpcCodec();
+        codec.setBinary(true);
+        byte[] bytes = RpcBinary.encode(new RpcMessage(0, "ABCDEF", 6, 4, -1, "queen", "null").onChannel(3).forRequest(7));
+
+        // Act
+        RpcMessage decoded = null;
+        for (int i = 0; i < bytes.length; i++) {
+            assertNull(decoded);
+            decoded = codec.decode(ByteBuffer.wrap(bytes, i, 1));
+        }
+
+        // Assert
+        assertEquals(3, decoded.getChannel());
+        assertEquals(7, decoded.getRequestId());
+        assertEquals(0, decoded.getCode());
+        assertEquals(6, decoded.getInt(1));
+        assertEquals(-1, decoded.getInt(3));
+        assertEquals("ABCDEF,6,4,-1,queen,null", decoded.getMessage());
+        //one byte each for length, channel, request id, code and count, eight for the id and two per number and piece
+        assertEquals(23, bytes.length);
+    }
+}
@@ -0,0 +1,50 @@
+package org.example.RPC;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RpcHandshakeTest {
+
+    @Test
+    void accept_shouldAgreeOnSupportedFeaturesOnly() {
+        // Arrange
+        RpcMessage request = RpcHandshake.request(6, RpcHandshake.BINARY, "compression", RpcHandshake.NO_BANNER);
+
+        // Act
+        RpcHandshake handshake = RpcHandshake.of(new RpcMessage(RpcHandshake.accept(request, RpcHandshake.BINARY).answer().toString()));
+
+        // Assert
+        assertEquals(RpcHandshake.VERSION, handshake.getVersion());
+        assertTrue(handshake.has(RpcHandshake.BINARY));
+        assertFalse(handshake.has(RpcHandshake.NO_BANNER));
+        assertFalse(handshake.has("compression"));
+    }
+
+    @Test
+    void accept_shouldFallBackToTheLowerVersion() {
+        // Act
+        RpcHandshake handshake = RpcHandshake.accept(new RpcMessage(6, 0, RpcHandshake.NO_BANNER), RpcHandshake.NO_BANNER);
+
+        // Assert
+        assertEquals(0, handshake.getVersion());
+        assertTrue(handshake.has(RpcHandshake.NO_BANNER));
+    }
+
+    @Test
+    void accept_shouldDropFeaturesWithoutTheFeaturesTheyNeed() {
+        // Arrange
+        RpcMessage request = RpcHandshake.request(6, RpcHandshake.MUX, RpcHandshake.PIPELINE);
+
+        // Act
+        RpcHandshake text = RpcHandshake.accept(request, RpcHandshake.MUX, RpcHandshake.PIPELINE);
+        RpcHandshake binary = RpcHandshake.accept(RpcHandshake.request(6, RpcHandshake.BINARY, RpcHandshake.PIPELINE),
+                RpcHandshake.BINARY, RpcHandshake.MUX, RpcHandshake.PIPELINE);
+
+        // Assert
+        assertFalse(text.has(RpcHandshake.MUX));
+        assertFalse(text.has(RpcHandshake.PIPELINE));
+        assertTrue(binary.has(RpcHandshake.BINARY));
+        assertFalse(binary.has(RpcHandshake.PIPELINE));
+    }
+}
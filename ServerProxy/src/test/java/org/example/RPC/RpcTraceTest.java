@@ -0,0 +1,68 @@
+package org.example.RPC;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RpcTraceTest {
+
+    @Test
+    void trace_shouldPrintSampledFramesInOrderOnClose() {
+        // Arrange
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        RpcTrace trace = new RpcTrace(16, new PrintStream(bytes, true, StandardCharsets.UTF_8), "test-trace");
+        trace.sample(999, 0);
+        trace.setLevel(RpcTrace.Level.FULL);
+
+        // Act
+        trace.read(new RpcMessage(0, "ABCDEF", 6, 4).forRequest(3));
+        trace.write(new RpcMessage(999, "offer"));
+        trace.write(new RpcMessage(0, "success").onChannel(2));
+        trace.close();
+
+        // Assert
+        String[] lines = bytes.toString(StandardCharsets.UTF_8).split(System.lineSeparator());
+        assertEquals(2, lines.length);
+        assertTrue(lines[0].endsWith(": Reading: channel 0 request 3 code 0 ABCDEF,6,4"));
+        assertTrue(lines[1].endsWith(": Writing: channel 2 request 0 code 0 success"));
+    }
+
+    @Test
+    void trace_shouldDropFramesInsteadOfWaitingForTheOutput() throws InterruptedException {
+        // Arrange
+        CountDownLatch printing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        OutputStream blocked = new OutputStream() {
+            @Override
+            public void write(int b) {
+                printing.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        };
+        RpcTrace trace = new RpcTrace(4, new PrintStream(blocked), "test-trace");
+        trace.setLevel(RpcTrace.Level.HEADER);
+        trace.write(new RpcMessage(0, "success"));
+        assertTrue(printing.await(2, TimeUnit.SECONDS));
+
+        // Act
+        for (int i = 0; i < 10; i++) {
+            trace.write(new RpcMessage(0, "success"));
+        }
+        release.countDown();
+        trace.close();
+
+        // Assert
+        assertEquals(6, trace.getDropped());
+    }
+}
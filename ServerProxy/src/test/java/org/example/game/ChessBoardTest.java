@@ -0,0 +1,132 @@
+package org.example.game;
+
+import com.google.gson.JsonObject;
+import org.example.exceptions.JsonException;
+import org.example.game.figure.FigureFactory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ChessBoardTest {
+
+    private ChessBoard board;
+    private BoardLoader boardLoader;
+
+    @BeforeEach
+    void setUp() throws JsonException {
+        board = new ChessBoard();
+        boardLoader = new BoardLoader(new FigureFactory(board));
+        boardLoader.loadNewBoard(board);
+    }
+
+    private void move(int fromX, int fromY, int toX, int toY) {
+        board.move(board.getMove(Position.square(fromX, fromY), Position.square(toX, toY), Position.EMPTY));
+    }
+
+    @Test
+    void move_shouldEndGameOnThreefoldRepetition() {
+        // Act
+        for (int i = 0; i < 2; i++) {
+            move(6, 7, 5, 5);
+            move(6, 0, 5, 2);
+            move(5, 5, 6, 7);
+            assertFalse(board.isGameOver());
+            move(5, 2, 6, 0);
+        }
+
+        // Assert
+        assertTrue(board.isGameOver());
+        assertEquals("Threefold-repetition applies", board.getCurrentMessage());
+    }
+
+    @Test
+    void getKey_shouldMatchKeyOfReloadedBoard() throws JsonException {
+        // Arrange
+        move(4, 6, 4, 4);
+        move(3, 1, 3, 3);
+        move(4, 4, 4, 3);
+        move(5, 1, 5, 3);
+
+        // Act
+        ChessBoard reloaded = new ChessBoard();
+        new BoardLoader(new FigureFactory(reloaded)).loadBoard(reloaded, boardLoader.getCurrentBoard(board));
+
+        // Assert
+        assertEquals(board.getKey(), reloaded.getKey());
+        assertNotEquals(Position.NO_SQUARE, board.getPosition().getEnPassantSquare());
+    }
+
+    @Test
+    void loadNewBoard_shouldCopyTemplateWithoutChangingIt() throws JsonException {
+        // Arrange
+        JsonObject init = boardLoader.getCurrentBoard(board);
+        ChessBoard parsed = new ChessBoard();
+        new BoardLoader(new FigureFactory(parsed)).loadBoard(parsed, init);
+        move(4, 6, 4, 4);
+
+        // Act
+        ChessBoard copied = new ChessBoard();
+        new BoardLoader(new FigureFactory(copied)).loadNewBoard(copied);
+
+        // Assert
+        assertEquals(init, boardLoader.getCurrentBoard(copied));
+        assertEquals(parsed.getKey(), copied.getKey());
+        assertEquals(parsed.getAttackedFields(Color.BLACK), copied.getAttackedFields(Color.BLACK));
+        assertEquals(20, Perft.perft(copied, 1));
+    }
+
+    @Test
+    void unmakeMove_shouldRestoreKey() {
+        // Arrange
+        long key = board.getKey();
+
+        // Act
+        board.makeMove(Position.square(4, 6), Position.square(4, 4), Position.EMPTY);
+        long moved = board.getKey();
+        board.unmakeMove();
+
+        // Assert
+        assertNotEquals(key, moved);
+        assertEquals(key, board.getKey());
+    }
+
+    @Test
+    void move_shouldKeepPieceListsAndKingSquares() {
+        // Act
+        move(4, 6, 4, 4);
+        move(3, 1, 3, 3);
+        move(4, 4, 3, 3);
+        move(4, 0, 3, 1);
+
+        // Assert
+        for (Color color : Color.values()) {
+            long squares = 0;
+            for (int i = 0; i < board.getFigureCount(color); i++) {
+                squares |= 1L << board.getFigureSquares(color)[i];
+            }
+            assertEquals(board.getPosition().getPieces(color), squares);
+        }
+        assertEquals(15, board.getFigureCount(Color.BLACK));
+        assertEquals(Position.square(3, 1), board.getPosition().getKingSquare(Color.BLACK));
+        assertEquals(Position.square(4, 7), board.getPosition().getKingSquare(Color.WHITE));
+    }
+
+    @Test
+    void generateMoves_shouldEncodeFlags() {
+        // Arrange
+        MoveList moves = new MoveList();
+
+        // Act
+        board.generateMoves(moves);
+
+        // Assert
+        assertEquals(20, moves.size());
+        int doublePush = board.getMove(Position.square(4, 6), Position.square(4, 4), Position.EMPTY);
+        assertTrue(moves.contains(doublePush));
+        assertTrue(Move.is(doublePush, Move.DOUBLE_PUSH));
+        assertEquals(Position.EMPTY, Move.promotion(doublePush));
+        assertEquals(Move.NONE, board.getMove(Position.square(4, 6), Position.square(4, 3), Position.EMPTY));
+        assertEquals(Move.NONE, board.getMove(Position.square(4, 1), Position.square(4, 3), Position.EMPTY));
+    }
+}
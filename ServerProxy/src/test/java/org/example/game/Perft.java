@@ -0,0 +1,53 @@
+package org.example.game;
+
+import org.example.exceptions.JsonException;
+import org.example.game.figure.FigureFactory;
+
+import java.util.Map;
+
+//counts the leaf nodes of the legal move tree, the standard correctness and speed test of a move generator
+public class Perft {
+    //expected node counts for depth 1 to 5, see https://www.chessprogramming.org/Perft_Results
+    public static final Map<String, long[]> RESULTS = Map.of(
+            "init", new long[]{20, 400, 8902, 197281, 4865609},
+            "kiwipete", new long[]{48, 2039, 97862, 4085603, 193690690},
+            "position3", new long[]{14, 191, 2812, 43238, 674624},
+            "position4", new long[]{6, 264, 9467, 422333, 15833292},
+            "position5", new long[]{44, 1486, 62379, 2103487, 89941194}
+    );
+
+    //loads init.json or one of the positions in the positions resource folder
+    public static ChessBoard load(String name) throws JsonException {
+        ChessBoard board = new ChessBoard();
+        BoardLoader loader = new BoardLoader(new FigureFactory(board));
+        if (name.equals("init")) {
+            loader.loadNewBoard(board);
+        } else {
+            loader.loadBoard(board, "positions/" + name + ".json");
+        }
+        return board;
+    }
+
+    public static long perft(ChessBoard board, int depth) {
+        MoveList[] lists = new MoveList[depth + 1];
+        for (int i = 1; i <= depth; i++) {
+            lists[i] = new MoveList();
+        }
+        return perft(board, depth, lists);
+    }
+
+    private static long perft(ChessBoard board, int depth, MoveList[] lists) {
+        MoveList moves = lists[depth];
+        board.generateMoves(moves);
+        if (depth == 1) {
+            return moves.size();
+        }
+        long nodes = 0;
+        for (int i = 0; i < moves.size(); i++) {
+            board.makeMove(moves.get(i));
+            nodes += perft(board, depth - 1, lists);
+            board.unmakeMove();
+        }
+        return nodes;
+    }
+}
@@ -0,0 +1,29 @@
+package org.example.game;
+
+import org.example.exceptions.JsonException;
+import org.example.game.figure.FigureFactory;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PerftTest {
+
+    @ParameterizedTest
+    @CsvSource({"init, 4", "kiwipete, 3", "position3, 4", "position4, 3", "position5, 3"})
+    void perft_shouldMatchKnownNodeCounts(String name, int maxDepth) throws JsonException {
+        // Arrange
+        ChessBoard board = Perft.load(name);
+        BoardLoader boardLoader = new BoardLoader(new FigureFactory(board));
+        String before = boardLoader.getCurrentBoard(board).toString();
+
+        for (int depth = 1; depth <= maxDepth; depth++) {
+            // Act
+            long nodes = Perft.perft(board, depth);
+
+            // Assert
+            assertEquals(Perft.RESULTS.get(name)[depth - 1], nodes, name + " at depth " + depth);
+        }
+        assertEquals(before, boardLoader.getCurrentBoard(board).toString());
+    }
+}
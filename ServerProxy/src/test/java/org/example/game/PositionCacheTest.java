@@ -0,0 +1,52 @@
+package org.example.game;
+
+import org.example.exceptions.JsonException;
+import org.example.game.figure.FigureFactory;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PositionCacheTest {
+
+    @Test
+    void put_shouldEvictUnreferencedEntriesFirst() {
+        // Arrange
+        PositionCache cache = new PositionCache(2);
+        cache.put(1, new long[64], PositionCache.NONE);
+        cache.put(2, new long[64], PositionCache.NONE);
+        cache.get(1);
+
+        // Act
+        cache.put(3, new long[64], PositionCache.NONE);
+
+        // Assert
+        assertNotNull(cache.get(1));
+        assertNull(cache.get(2));
+        assertNotNull(cache.get(3));
+        assertEquals(1, cache.getEvictions());
+        assertEquals(3, cache.getHits());
+        assertEquals(1, cache.getMisses());
+    }
+
+    @Test
+    void getLegalMoves_shouldBeSharedBetweenBoards() throws JsonException {
+        // Arrange
+        PositionCache cache = new PositionCache(16);
+        ChessBoard first = new ChessBoard(cache);
+        new BoardLoader(new FigureFactory(first)).loadNewBoard(first);
+        ChessBoard second = new ChessBoard(cache);
+
+        // Act
+        new BoardLoader(new FigureFactory(second)).loadNewBoard(second);
+        second.move(second.getMove(Position.square(5, 6), Position.square(5, 5), Position.EMPTY));
+        second.move(second.getMove(Position.square(4, 1), Position.square(4, 3), Position.EMPTY));
+        second.move(second.getMove(Position.square(6, 6), Position.square(6, 4), Position.EMPTY));
+        second.move(second.getMove(Position.square(3, 0), Position.square(7, 4), Position.EMPTY));
+
+        // Assert
+        assertEquals(1, cache.getHits());
+        assertEquals(1L << Position.square(4, 5) | 1L << Position.square(4, 4), first.getLegalMoves(Position.square(4, 6)));
+        assertTrue(second.isGameOver());
+        assertEquals(PositionCache.CHECK_MATE, second.getState());
+    }
+}
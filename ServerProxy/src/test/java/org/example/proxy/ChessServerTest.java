@@ -1,14 +1,26 @@
 package org.example.proxy;
 
+import com.google.gson.JsonObject;
 import org.example.exceptions.GameException;
 import org.example.exceptions.IllegalMoveException;
-import org.example.exceptions.JsonException;
 import org.example.exceptions.PlayerException;
 import org.example.game.Color;
+import org.example.game.PositionCache;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mockito;
 
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
 
@@ -26,12 +38,12 @@ class ChessServerTest {
     }
 
     @Test
-    void createGame_shouldCreateGameAndReturnGameId() throws JsonException, GameException {
+    void createGame_shouldCreateGameAndReturnGameId() throws Exception {
         // Arrange
         when(mockPlayerWhite.currentGame()).thenReturn(null);
 
         // Act
-        String gameId = chessServer.createGame(mockPlayerWhite, Color.WHITE);
+        String gameId = await(chessServer.createGame(mockPlayerWhite, Color.WHITE));
 
         // Assert
         assertNotNull(gameId);
@@ -41,12 +53,12 @@ class ChessServerTest {
     }
 
     @Test
-    void joinGame_shouldJoinExistingGameAndReturnColor() throws GameException, PlayerException, JsonException {
+    void joinGame_shouldJoinExistingGameAndReturnColor() throws Exception {
         // Arrange
-        String gameId = chessServer.createGame(mockPlayerWhite, Color.WHITE);
+        String gameId = await(chessServer.createGame(mockPlayerWhite, Color.WHITE));
 
         // Act
-        Color color = chessServer.joinGame(mockPlayerBlack, gameId);
+        Color color = await(chessServer.joinGame(mockPlayerBlack, gameId));
 
         // Assert
         assertNotNull(color);
@@ -54,39 +66,183 @@ class ChessServerTest {
     }
 
     @Test
-    void leaveGame_shouldLeaveGameAndRemoveIfEmpty() throws GameException, JsonException {
+    void leaveGame_shouldLeaveGameAndRemoveIfEmpty() throws Exception {
         // Arrange
-        String gameId = chessServer.createGame(mockPlayerWhite, Color.WHITE);
+        String gameId = await(chessServer.createGame(mockPlayerWhite, Color.WHITE));
 
         // Act
-        chessServer.leaveGame(mockPlayerWhite, gameId);
+        await(chessServer.leaveGame(mockPlayerWhite, gameId));
 
         // Assert
         assertThrows(GameException.class, () -> chessServer.getGame(gameId));
     }
 
     @Test
-    void movePiece_shouldMovePieceAndThrowIllegalMoveExceptionIfMoveIsNotPossible() throws GameException, PlayerException, IllegalMoveException, JsonException {
+    void movePiece_shouldMovePieceAndThrowIllegalMoveExceptionIfMoveIsNotPossible() throws Exception {
         // Arrange
-        String gameId = chessServer.createGame(mockPlayerWhite, Color.WHITE);
+        String gameId = await(chessServer.createGame(mockPlayerWhite, Color.WHITE));
 
-        chessServer.joinGame(mockPlayerBlack, gameId);
+        await(chessServer.joinGame(mockPlayerBlack, gameId));
 
         ChessGame game = chessServer.getGame(gameId);
 
         // Assert
-        chessServer.movePiece(mockPlayerWhite, gameId, 2, 6, 2, 5, "");
+        await(chessServer.movePiece(mockPlayerWhite, gameId, 2, 6, 2, 5, ""));
 
-        assertThrows(IllegalMoveException.class, () -> chessServer.movePiece(mockPlayerBlack, gameId, 2, 1, 2, 6, ""));
+        assertThrows(IllegalMoveException.class, () -> await(chessServer.movePiece(mockPlayerBlack, gameId, 2, 1, 2, 6, "")));
     }
 
     @Test
-    void getBoard_shouldReturnBoard() throws GameException, JsonException {
+    void getBoard_shouldReturnBoard() throws Exception {
         // Arrange
-        String gameId = chessServer.createGame(mockPlayerWhite, Color.WHITE);
+        String gameId = await(chessServer.createGame(mockPlayerWhite, Color.WHITE));
 
         // Act
-        assertNotNull(chessServer.getBoard(gameId));
+        assertNotNull(await(chessServer.getBoard(gameId)));
     }
-}
 
+    @Test
+    void getBoardSince_shouldReturnOnlyTheMissedMoves() throws Exception {
+        // Arrange
+        String gameId = await(chessServer.createGame(mockPlayerWhite, Color.WHITE));
+        await(chessServer.joinGame(mockPlayerBlack, gameId));
+        await(chessServer.movePiece(mockPlayerWhite, gameId, 2, 6, 2, 5, ""));
+        await(chessServer.movePiece(mockPlayerBlack, gameId, 2, 1, 2, 2, ""));
+        await(chessServer.movePiece(mockPlayerWhite, gameId, 6, 7, 5, 5, ""));
+
+        // Act
+        JsonObject delta = await(chessServer.getBoardSince(gameId, 1));
+
+        // Assert
+        assertEquals(3, delta.get("sequence").getAsInt());
+        assertEquals(2, delta.getAsJsonArray("moves").size());
+        assertEquals(2, delta.getAsJsonArray("moves").get(0).getAsJsonObject().get("sequence").getAsInt());
+        assertEquals(5, delta.getAsJsonArray("moves").get(1).getAsJsonObject().get("toX").getAsInt());
+        assertEquals(0, await(chessServer.getBoardSince(gameId, 3)).getAsJsonArray("moves").size());
+        verify(mockPlayerBlack).updateGame(6, 7, 5, 5, "", false, "", 3);
+    }
+
+    @Test
+    void getBoardSince_shouldFallBackToTheBoardForLargeGaps() throws Exception {
+        // Arrange
+        String gameId = await(chessServer.createGame(mockPlayerWhite, Color.WHITE));
+        await(chessServer.joinGame(mockPlayerBlack, gameId));
+        //pawn moves, a repeated position would end the game
+        for (int x = 0; x < 8; x++) {
+            await(chessServer.movePiece(mockPlayerWhite, gameId, x, 6, x, 5, ""));
+            await(chessServer.movePiece(mockPlayerBlack, gameId, x, 1, x, 2, ""));
+        }
+        await(chessServer.movePiece(mockPlayerWhite, gameId, 0, 5, 0, 4, ""));
+        await(chessServer.movePiece(mockPlayerBlack, gameId, 0, 2, 0, 3, ""));
+
+        // Act
+        JsonObject snapshot = await(chessServer.getBoardSince(gameId, 0));
+
+        // Assert
+        assertEquals(18, snapshot.get("sequence").getAsInt());
+        assertFalse(snapshot.has("moves"));
+        assertEquals(16, snapshot.getAsJsonArray("white").size());
+        assertEquals(ChessGame.HISTORY, await(chessServer.getBoardSince(gameId, 18 - ChessGame.HISTORY)).getAsJsonArray("moves").size());
+    }
+
+    @Test
+    void movePiece_shouldApplyConcurrentMovesOfOneGameOneAfterTheOther() throws Exception {
+        // Arrange
+        String gameId = await(chessServer.createGame(mockPlayerWhite, Color.WHITE));
+        await(chessServer.joinGame(mockPlayerBlack, gameId));
+        int threads = 8;
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger moved = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+
+        // Act
+        for (int i = 0; i < threads; i++) {
+            executor.submit(() -> {
+                start.await();
+                try {
+                    await(chessServer.movePiece(mockPlayerWhite, gameId, 4, 6, 4, 4, ""));
+                    moved.incrementAndGet();
+                } catch (IllegalMoveException e) {
+                    // the pawn has already moved
+                }
+                return null;
+            });
+        }
+        start.countDown();
+        executor.shutdown();
+
+        // Assert
+        assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+        assertEquals(1, moved.get());
+        assertEquals(1, await(chessServer.getBoard(gameId)).get("sequence").getAsInt());
+    }
+
+    @Test
+    void chessServer_shouldRestoreRunningGamesFromTheJournal() throws Exception {
+        // Arrange
+        Path directory = Files.createTempDirectory("journal");
+        when(mockPlayerWhite.getId()).thenReturn("white");
+        when(mockPlayerBlack.getId()).thenReturn("black");
+        IPlayer stranger = Mockito.mock(IPlayer.class);
+        when(stranger.getId()).thenReturn("stranger");
+        String gameId;
+        String leftId;
+        try (Journal journal = Journal.open(directory)) {
+            ChessServer journaled = new ChessServer(new PositionCache(1024), ForkJoinPool.commonPool(), journal);
+            gameId = await(journaled.createGame(mockPlayerWhite, Color.WHITE));
+            await(journaled.joinGame(mockPlayerBlack, gameId));
+            await(journaled.movePiece(mockPlayerWhite, gameId, 4, 6, 4, 4, ""));
+            await(journaled.movePiece(mockPlayerBlack, gameId, 4, 1, 4, 3, ""));
+            leftId = await(journaled.createGame(mockPlayerWhite, Color.WHITE));
+            await(journaled.leaveGame(mockPlayerWhite, leftId));
+        }
+
+        // Act
+        try (Journal journal = Journal.open(directory)) {
+            ChessServer restored = new ChessServer(new PositionCache(1024), ForkJoinPool.commonPool(), journal);
+
+            // Assert
+            JsonObject board = await(restored.getBoard(gameId));
+            assertEquals(2, board.get("sequence").getAsInt());
+            assertEquals(3, board.get("current_turn").getAsInt());
+            assertEquals(2, await(restored.getBoardSince(gameId, 0)).getAsJsonArray("moves").size());
+            assertThrows(GameException.class, () -> restored.getGame(leftId));
+            assertThrows(PlayerException.class, () -> await(restored.joinGame(stranger, gameId)));
+            assertEquals(Color.BLACK, await(restored.joinGame(mockPlayerBlack, gameId)));
+            assertEquals(Color.WHITE, await(restored.joinGame(mockPlayerWhite, gameId)));
+        }
+    }
+
+    @Test
+    void chessServer_shouldRemoveRestoredGamesNobodyJoinsAgain() throws Exception {
+        // Arrange
+        Path directory = Files.createTempDirectory("journal");
+        String gameId;
+        try (Journal journal = Journal.open(directory)) {
+            ChessServer journaled = new ChessServer(new PositionCache(1024), ForkJoinPool.commonPool(), journal);
+            gameId = await(journaled.createGame(mockPlayerWhite, Color.WHITE));
+        }
+
+        // Act
+        try (Journal journal = Journal.open(directory)) {
+            ChessServer restored = new ChessServer(new PositionCache(1024), ForkJoinPool.commonPool(), journal,
+                    100, TimeUnit.MILLISECONDS);
+            Thread.sleep(500);
+
+            // Assert
+            assertThrows(GameException.class, () -> restored.getGame(gameId));
+        }
+        try (Journal journal = Journal.open(directory)) {
+            assertTrue(journal.getGames().isEmpty());
+        }
+    }
+
+    //the result of the operation, or the exception the game failed it with
+    private static <T> T await(CompletableFuture<T> future) throws Exception {
+        try {
+            return future.get(5, TimeUnit.SECONDS);
+        } catch (ExecutionException e) {
+            throw (Exception) e.getCause();
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package org.example.proxy;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HeartbeatTest {
+
+    @Test
+    void register_shouldExpireAPlayerThatDoesNotAnswerTheProbe() throws InterruptedException {
+        // Arrange
+        ProbedPlayer player = new ProbedPlayer(false);
+        CountDownLatch expired = new CountDownLatch(1);
+
+        // Act
+        try (Heartbeat heartbeat = new Heartbeat(200, 200, TimeUnit.MILLISECONDS)) {
+            heartbeat.register(player, p -> expired.countDown());
+
+            // Assert
+            assertTrue(expired.await(2, TimeUnit.SECONDS));
+            assertEquals(1, player.probes.get());
+        }
+    }
+
+    @Test
+    void touch_shouldKeepAPlayerWithTrafficFromBeingProbed() throws InterruptedException {
+        // Arrange
+        ProbedPlayer player = new ProbedPlayer(true);
+        CountDownLatch expired = new CountDownLatch(1);
+
+        // Act
+        try (Heartbeat heartbeat = new Heartbeat(200, 200, TimeUnit.MILLISECONDS)) {
+            Heartbeat.Beat beat = heartbeat.register(player, p -> expired.countDown());
+            for (int i = 0; i < 10; i++) {
+                Thread.sleep(50);
+                beat.touch();
+            }
+
+            // Assert
+            assertEquals(0, player.probes.get());
+            assertFalse(expired.await(0, TimeUnit.MILLISECONDS));
+        }
+    }
+
+    private static class ProbedPlayer implements IPlayer {
+        private final boolean alive;
+        private final AtomicInteger probes = new AtomicInteger();
+
+        ProbedPlayer(boolean alive) {
+            this.alive = alive;
+        }
+
+        @Override
+        public boolean stillAlive() {
+            probes.incrementAndGet();
+            return alive;
+        }
+
+        @Override
+        public void updateGame(int fromX, int fromY, int toX, int toY, String promotionFigure, boolean gameOver, String message, int sequence) {
+        }
+
+        @Override
+        public void receiveMessage(String message) {
+        }
+
+        @Override
+        public void startGame() {
+        }
+
+        @Override
+        public String getId() {
+            return "probed";
+        }
+
+        public void setCurrentGame(ChessGame game) {
+        }
+
+        public ChessGame currentGame() {
+            return null;
+        }
+    }
+}
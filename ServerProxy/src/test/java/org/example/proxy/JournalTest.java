@@ -0,0 +1,155 @@
+package org.example.proxy;
+
+import org.example.game.Color;
+import org.example.game.Move;
+import org.example.game.MoveList;
+import org.example.game.Position;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JournalTest {
+
+    private static final int E2E4 = Move.of(Position.square(4, 6), Position.square(4, 4), Position.EMPTY, 0);
+    private static final int E7E5 = Move.of(Position.square(4, 1), Position.square(4, 3), Position.EMPTY, 0);
+
+    @Test
+    void open_shouldReplayRunningGamesAndReplaceTheOldSegments() throws IOException {
+        // Arrange
+        Path directory = Files.createTempDirectory("journal");
+        try (Journal journal = Journal.open(directory)) {
+            journal.create("AAAAAA", "white", null);
+            journal.create("BBBBBB", null, "black");
+            journal.players("AAAAAA", "white", "black");
+            journal.move("AAAAAA", 1, E2E4 | Move.DOUBLE_PUSH << 15);
+            journal.move("BBBBBB", 1, E2E4);
+            journal.move("AAAAAA", 2, E7E5).join();
+            journal.remove("BBBBBB");
+        }
+        Journal.open(directory).close();
+
+        // Act
+        try (Journal journal = Journal.open(directory)) {
+            Journal.Game game = journal.getGames().get("AAAAAA");
+            MoveList moves = game.getMoves();
+
+            // Assert
+            assertEquals(List.of("AAAAAA"), List.copyOf(journal.getGames().keySet()));
+            assertEquals(2, moves.size());
+            assertEquals(E2E4, moves.get(0));
+            assertEquals(E7E5, moves.get(1));
+            assertEquals("white", game.getPlayerId(Color.WHITE));
+            assertEquals("black", game.getPlayerId(Color.BLACK));
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            assertEquals(1, files.count());
+        }
+    }
+
+    @Test
+    void open_shouldStopAtATornRecord() throws IOException {
+        // Arrange
+        Path directory = Files.createTempDirectory("journal");
+        try (Journal journal = Journal.open(directory)) {
+            journal.create("AAAAAA", "white", null);
+            journal.move("AAAAAA", 1, E2E4);
+            journal.move("AAAAAA", 2, E7E5);
+        }
+        Path segment;
+        try (Stream<Path> files = Files.list(directory)) {
+            segment = files.findFirst().orElseThrow();
+        }
+        //the checksum of the last move does not match anymore, and half a record follows it
+        byte[] records = Files.readAllBytes(segment);
+        records[records.length - 1] ^= 1;
+        Files.write(segment, records);
+        Files.write(segment, new byte[Journal.HEADER / 2], StandardOpenOption.APPEND);
+
+        // Act
+        try (Journal journal = Journal.open(directory)) {
+
+            // Assert
+            assertEquals(1, journal.getGames().get("AAAAAA").getMoves().size());
+        }
+    }
+
+    @Test
+    void open_shouldRejectACorruptRecordBeforeTheLastSegment() throws IOException {
+        // Arrange
+        Path directory = Files.createTempDirectory("journal");
+        try (Journal journal = Journal.open(directory)) {
+            journal.create("AAAAAA", "white", null);
+            journal.move("AAAAAA", 1, E2E4);
+        }
+        Path segment;
+        try (Stream<Path> files = Files.list(directory)) {
+            segment = files.findFirst().orElseThrow();
+        }
+        //a record does not match its checksum, but a later segment follows
+        byte[] records = Files.readAllBytes(segment);
+        records[Journal.HEADER] ^= 1;
+        Files.write(segment, records);
+        Files.createFile(directory.resolve("99999999.journal"));
+
+        // Act
+        // Assert
+        assertThrows(IOException.class, () -> Journal.open(directory));
+    }
+
+    @Test
+    void open_shouldSkipTheSegmentsACheckpointReplaced() throws IOException {
+        // Arrange
+        Path directory = Files.createTempDirectory("journal");
+        try (Journal journal = Journal.open(directory)) {
+            journal.create("AAAAAA", "white", null);
+        }
+        try (Journal journal = Journal.open(directory)) {
+            journal.remove("AAAAAA");
+        }
+        //the compaction moved its segment in place but crashed before the old one, torn at its end, was deleted
+        Files.write(directory.resolve("00000000.journal"), new byte[Journal.HEADER * 2]);
+
+        // Act
+        try (Journal journal = Journal.open(directory)) {
+
+            // Assert
+            assertTrue(journal.getGames().isEmpty());
+        }
+    }
+
+    @Test
+    void open_shouldNotHandOutTheIdsOfTheJournalAgain() throws IOException {
+        // Arrange
+        Path directory = Files.createTempDirectory("journal");
+        Set<String> seen = new HashSet<>();
+        try (Journal journal = Journal.open(directory)) {
+            for (int i = 0; i < 100; i++) {
+                String id = journal.getIds().next();
+                seen.add(id);
+                journal.create(id, "white", null);
+                if (i % 2 == 0) {
+                    journal.remove(id);
+                }
+            }
+        }
+
+        // Act
+        try (Journal journal = Journal.open(directory)) {
+
+            // Assert
+            assertEquals(50, journal.getGames().size());
+            for (int i = 0; i < 100; i++) {
+                assertFalse(seen.contains(journal.getIds().next()));
+            }
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package org.example.proxy;
+
+import org.example.RPC.RpcMessage;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PlayerChannelProxyTest {
+
+    @Test
+    void stillAlive_shouldGetTheAnswerWithTheNumberOfItsCall() throws InterruptedException {
+        // Arrange
+        List<RpcMessage> sent = new CopyOnWriteArrayList<>();
+        PlayerChannelProxy player = new PlayerChannelProxy("player", 2, sent::add);
+        boolean[] alive = new boolean[1];
+        RuntimeException[] failure = new RuntimeException[1];
+        Thread writer = new Thread(() -> {
+            try {
+                player.startGame();
+            } catch (RuntimeException e) {
+                failure[0] = e;
+            }
+        });
+        Thread heartbeat = new Thread(() -> alive[0] = player.stillAlive());
+
+        // Act
+        writer.start();
+        while (sent.isEmpty()) {
+            Thread.onSpinWait();
+        }
+        heartbeat.start();
+        while (sent.size() < 2) {
+            Thread.onSpinWait();
+        }
+        player.receive(new RpcMessage(0, "success").onChannel(2).forRequest(sent.get(1).getRequestId()));
+        player.receive(new RpcMessage(1, "failed").onChannel(2).forRequest(sent.get(0).getRequestId()));
+        writer.join();
+        heartbeat.join();
+
+        // Assert
+        assertEquals("failed", failure[0].getMessage());
+        assertTrue(alive[0]);
+        assertEquals(2, sent.get(0).getChannel());
+        assertEquals(PlayerClientProxy.Protocol.STILL_ALIVE.ordinal(), sent.get(1).getCode());
+    }
+
+    @Test
+    void stillAlive_shouldBeFalseOnceTheConnectionIsClosed() throws InterruptedException {
+        // Arrange
+        List<RpcMessage> sent = new CopyOnWriteArrayList<>();
+        PlayerChannelProxy player = new PlayerChannelProxy("player", 1, sent::add);
+        boolean[] alive = {true};
+        Thread heartbeat = new Thread(() -> alive[0] = player.stillAlive());
+
+        // Act
+        heartbeat.start();
+        while (sent.isEmpty()) {
+            Thread.onSpinWait();
+        }
+        player.close();
+        heartbeat.join();
+
+        // Assert
+        assertFalse(alive[0]);
+    }
+
+    @Test
+    void receive_shouldNotGiveAnAnswerAfterItsTimeoutToTheNextCall() throws InterruptedException {
+        // Arrange
+        List<RpcMessage> sent = new CopyOnWriteArrayList<>();
+        PlayerChannelProxy player = new PlayerChannelProxy("player", 3, sent::add);
+        RuntimeException[] failure = new RuntimeException[1];
+        Thread writer = new Thread(() -> {
+            try {
+                player.startGame();
+            } catch (RuntimeException e) {
+                failure[0] = e;
+            }
+        });
+        boolean alive = player.stillAlive();
+
+        // Act
+        writer.start();
+        while (sent.size() < 2) {
+            Thread.onSpinWait();
+        }
+        player.receive(new RpcMessage(1, "late").onChannel(3).forRequest(sent.get(0).getRequestId()));
+        player.receive(new RpcMessage(0, "success").onChannel(3).forRequest(sent.get(1).getRequestId()));
+        writer.join();
+
+        // Assert
+        assertFalse(alive);
+        assertNull(failure[0]);
+        assertNotEquals(sent.get(0).getRequestId(), sent.get(1).getRequestId());
+    }
+}
@@ -0,0 +1,151 @@
+package org.example.proxy;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class QueuedPlayerTest {
+
+    @Test
+    void receiveMessage_shouldNotWaitForTheClient() throws InterruptedException {
+        // Arrange
+        SlowPlayer slow = new SlowPlayer();
+        QueuedPlayer player = QueuedPlayer.start(slow, 4, QueuedPlayer.Overflow.DROP);
+
+        // Act
+        for (int i = 0; i < 3; i++) {
+            player.receiveMessage("message " + i);
+        }
+        slow.release.countDown();
+        while (slow.received.size() < 3) {
+            Thread.sleep(1);
+        }
+
+        // Assert
+        assertEquals(List.of("message 0", "message 1", "message 2"), slow.received);
+        assertEquals(0, player.getDropped());
+        player.close();
+    }
+
+    @Test
+    void receiveMessage_shouldDropWhatDoesNotFit() throws IOException {
+        // Arrange
+        SlowPlayer slow = new SlowPlayer();
+        QueuedPlayer player = QueuedPlayer.start(slow, 2, QueuedPlayer.Overflow.DROP);
+
+        // Act
+        for (int i = 0; i < 10; i++) {
+            player.receiveMessage("message " + i);
+        }
+
+        // Assert
+        assertTrue(player.getDropped() >= 7);
+        assertTrue(player.stillAlive());
+        player.close();
+    }
+
+    @Test
+    void receiveMessage_shouldDisconnectASlowConsumer() throws IOException {
+        // Arrange
+        SlowPlayer slow = new SlowPlayer();
+        QueuedPlayer player = QueuedPlayer.start(slow, 2, QueuedPlayer.Overflow.DISCONNECT);
+
+        // Act
+        for (int i = 0; i < 10; i++) {
+            player.receiveMessage("message " + i);
+        }
+
+        // Assert
+        assertTrue(player.isDisconnected());
+        assertEquals(0, player.getQueued());
+        assertFalse(player.stillAlive());
+    }
+
+    @Test
+    void receiveMessage_shouldLetASlowConsumerLeaveOnce() {
+        // Arrange
+        SlowPlayer slow = new SlowPlayer();
+        AtomicInteger left = new AtomicInteger();
+        QueuedPlayer player = QueuedPlayer.start(slow, 2, QueuedPlayer.Overflow.DISCONNECT, queued -> left.incrementAndGet());
+
+        // Act
+        for (int i = 0; i < 10; i++) {
+            player.receiveMessage("message " + i);
+        }
+
+        // Assert
+        assertTrue(player.isDisconnected());
+        assertEquals(1, left.get());
+    }
+
+    @Test
+    void close_shouldCloseThePlayerOnceTheWriterHasStopped() throws InterruptedException {
+        // Arrange
+        SlowPlayer slow = new SlowPlayer();
+        QueuedPlayer player = QueuedPlayer.start(slow, 2, QueuedPlayer.Overflow.DROP);
+        player.receiveMessage("message");
+
+        // Act
+        player.close();
+
+        // Assert
+        assertTrue(slow.closed.await(5, TimeUnit.SECONDS));
+        assertTrue(slow.received.isEmpty());
+    }
+
+    //takes the first push only once released
+    private static class SlowPlayer implements IPlayer, Closeable {
+        private final CountDownLatch release = new CountDownLatch(1);
+        private final CountDownLatch closed = new CountDownLatch(1);
+        private final List<String> received = new CopyOnWriteArrayList<>();
+
+        @Override
+        public void receiveMessage(String message) {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            received.add(message);
+        }
+
+        @Override
+        public void updateGame(int fromX, int fromY, int toX, int toY, String promotionFigure, boolean gameOver, String message, int sequence) {
+        }
+
+        @Override
+        public void startGame() {
+        }
+
+        @Override
+        public boolean stillAlive() {
+            return true;
+        }
+
+        @Override
+        public String getId() {
+            return "slow";
+        }
+
+        public void setCurrentGame(ChessGame game) {
+        }
+
+        public ChessGame currentGame() {
+            return null;
+        }
+
+        @Override
+        public void close() {
+            closed.countDown();
+        }
+    }
+}
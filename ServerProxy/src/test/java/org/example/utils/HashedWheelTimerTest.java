@@ -0,0 +1,55 @@
+package org.example.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HashedWheelTimerTest {
+
+    @Test
+    void schedule_shouldExpireInOrderOfTheDeadlinesAcrossRounds() throws InterruptedException {
+        // Arrange
+        List<Integer> expired = new CopyOnWriteArrayList<>();
+        CountDownLatch done = new CountDownLatch(3);
+        try (HashedWheelTimer timer = HashedWheelTimer.start(10, TimeUnit.MILLISECONDS, 4, "test-timer")) {
+            long start = System.nanoTime();
+
+            // Act
+            //more than one turn of the wheel away
+            timer.schedule(() -> { expired.add(3); done.countDown(); }, 120, TimeUnit.MILLISECONDS);
+            timer.schedule(() -> { expired.add(1); done.countDown(); }, 0, TimeUnit.MILLISECONDS);
+            timer.schedule(() -> { expired.add(2); done.countDown(); }, 50, TimeUnit.MILLISECONDS);
+
+            // Assert
+            assertTrue(done.await(2, TimeUnit.SECONDS));
+            assertEquals(List.of(1, 2, 3), expired);
+            assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(120));
+        }
+    }
+
+    @Test
+    void cancel_shouldKeepTheTaskFromRunning() throws InterruptedException {
+        // Arrange
+        CountDownLatch later = new CountDownLatch(1);
+        AtomicBoolean ran = new AtomicBoolean(false);
+        try (HashedWheelTimer timer = HashedWheelTimer.start(10, TimeUnit.MILLISECONDS, 8, "test-timer")) {
+            HashedWheelTimer.Timeout cancelled = timer.schedule(() -> ran.set(true), 20, TimeUnit.MILLISECONDS);
+            HashedWheelTimer.Timeout timeout = timer.schedule(later::countDown, 50, TimeUnit.MILLISECONDS);
+
+            // Act
+            cancelled.cancel();
+
+            // Assert
+            assertTrue(later.await(2, TimeUnit.SECONDS));
+            assertTrue(timeout.isExpired());
+            assertFalse(cancelled.isExpired());
+            assertFalse(ran.get());
+        }
+    }
+}
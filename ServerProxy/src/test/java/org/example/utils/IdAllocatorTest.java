@@ -0,0 +1,89 @@
+package org.example.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IdAllocatorTest {
+
+    @Test
+    void next_shouldHandOutDistinctIdsOfSixLettersAndDigits() {
+        // Arrange
+        IdAllocator ids = new IdAllocator();
+        Set<String> seen = new HashSet<>();
+
+        // Act
+        for (int i = 0; i < 200_000; i++) {
+            String id = ids.next();
+
+            // Assert
+            assertTrue(id.matches("[A-Z0-9]{6}"), id);
+            assertTrue(seen.add(id), id);
+        }
+    }
+
+    @Test
+    void permute_shouldNotFollowTheOrderOfTheCounter() {
+        // Arrange
+        IdAllocator ids = new IdAllocator(new long[]{1, 2, 3, 4}, 0);
+        int ascending = 0;
+
+        // Act
+        long previous = ids.permute(0);
+        for (long n = 1; n <= 1000; n++) {
+            long id = ids.permute(n);
+            if (id == previous + 1) {
+                ascending++;
+            }
+            previous = id;
+        }
+
+        // Assert
+        assertTrue(ascending < 10);
+        assertEquals(ids.permute(42), new IdAllocator(new long[]{1, 2, 3, 4}, 0).permute(42));
+        assertNotEquals(ids.permute(42), new IdAllocator(new long[]{5, 6, 7, 8}, 0).permute(42));
+    }
+
+    @Test
+    void permute_shouldKeepNumbersBelowTheNumberOfIds() {
+        // Arrange
+        IdAllocator ids = new IdAllocator(new long[]{-1, Long.MIN_VALUE, Long.MAX_VALUE, 0}, 0);
+
+        // Act
+        long first = ids.permute(0);
+        long last = ids.permute(IdAllocator.IDS - 1);
+
+        // Assert
+        assertTrue(first >= 0 && first < IdAllocator.IDS);
+        assertTrue(last >= 0 && last < IdAllocator.IDS);
+        assertNotEquals(first, last);
+    }
+
+    @Test
+    void reserve_shouldContinueAfterTheReservedId() {
+        // Arrange
+        long[] keys = {1, 2, 3, 4};
+        IdAllocator handedOut = new IdAllocator(keys, 0);
+        Set<String> seen = new HashSet<>();
+        String last = null;
+        for (int i = 0; i < 1000; i++) {
+            last = handedOut.next();
+            seen.add(last);
+        }
+        IdAllocator restored = new IdAllocator(keys, 0);
+
+        // Act
+        restored.reserve(last);
+
+        // Assert
+        assertEquals(1000, restored.getNext());
+        for (int i = 0; i < 1000; i++) {
+            assertFalse(seen.contains(restored.next()));
+        }
+        assertEquals(42, restored.unpermute(restored.permute(42)));
+        assertThrows(IllegalArgumentException.class, () -> restored.reserve("abc"));
+    }
+}
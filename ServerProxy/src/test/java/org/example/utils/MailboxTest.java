@@ -0,0 +1,72 @@
+package org.example.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MailboxTest {
+
+    @Test
+    void submit_shouldRunTheTasksOneAfterTheOtherInOrder() throws Exception {
+        // Arrange
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        Mailbox mailbox = new Mailbox(executor);
+        List<Integer> order = new ArrayList<>();
+        List<CompletableFuture<Integer>> results = new ArrayList<>();
+
+        // Act
+        for (int i = 0; i < 1000; i++) {
+            int n = i;
+            //not thread-safe, the mailbox keeps its tasks from running at the same time
+            results.add(mailbox.submit(() -> {
+                order.add(n);
+                return n;
+            }));
+        }
+        CompletableFuture<Object> failed = mailbox.submit(() -> {
+            throw new IllegalStateException("failed");
+        });
+
+        // Assert
+        assertEquals(999, (int) results.get(999).get(5, TimeUnit.SECONDS));
+        ExecutionException e = assertThrows(ExecutionException.class, () -> failed.get(5, TimeUnit.SECONDS));
+        assertEquals("failed", e.getCause().getMessage());
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(i, (int) order.get(i));
+        }
+        executor.shutdown();
+    }
+
+    @Test
+    void execute_shouldLetOtherMailboxesRunBetweenBatches() {
+        // Arrange
+        Queue<Runnable> executor = new ConcurrentLinkedQueue<>();
+        Mailbox busy = new Mailbox(executor::add);
+        Mailbox other = new Mailbox(executor::add);
+        List<String> ran = new ArrayList<>();
+        for (int i = 0; i < Mailbox.BATCH * 2; i++) {
+            busy.execute(() -> ran.add("busy"));
+        }
+        other.execute(() -> ran.add("other"));
+
+        // Act
+        Runnable batch;
+        while ((batch = executor.poll()) != null) {
+            batch.run();
+        }
+
+        // Assert
+        assertEquals(Mailbox.BATCH * 2 + 1, ran.size());
+        assertEquals("other", ran.get(Mailbox.BATCH));
+    }
+}